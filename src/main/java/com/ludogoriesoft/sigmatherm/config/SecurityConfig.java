@@ -34,6 +34,15 @@ public class SecurityConfig {
     @Value("${magento.api-key}")
     private String magentoApiKey;
 
+    @Value("${skroutz.webhook.allowed-ips:}")
+    private String skroutzAllowedIps;
+
+    @Value("${skroutz.webhook.trusted-proxies:}")
+    private String skroutzTrustedProxies;
+
+    @Value("${skroutz.webhook.ip-cache-size:10000}")
+    private int skroutzIpCacheSize;
+
     private final JwtEntryPoint jwtEntryPoint;
 
     @Bean
@@ -74,7 +83,7 @@ public class SecurityConfig {
 
     @Bean
     public SkroutzIpFilter skroutzIpFilter() {
-        return new SkroutzIpFilter();
+        return new SkroutzIpFilter(skroutzAllowedIps, skroutzTrustedProxies, skroutzIpCacheSize);
     }
 
     @Bean
@@ -0,0 +1,24 @@
+package com.ludogoriesoft.sigmatherm.controller;
+
+import com.ludogoriesoft.sigmatherm.service.connector.ConnectorMetrics;
+import com.ludogoriesoft.sigmatherm.service.connector.ConnectorSyncEngine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/connectors")
+public class ConnectorController {
+
+    private final ConnectorSyncEngine connectorSyncEngine;
+
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, ConnectorMetrics.Snapshot>> getMetrics() {
+        return ResponseEntity.ok(connectorSyncEngine.getMetrics());
+    }
+}
@@ -0,0 +1,27 @@
+package com.ludogoriesoft.sigmatherm.controller;
+
+import com.ludogoriesoft.sigmatherm.helper.KeyedExecutor;
+import com.ludogoriesoft.sigmatherm.service.SkroutzWebhookWorker;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/admin/lanes")
+public class LaneController {
+
+    private final SkroutzWebhookWorker skroutzWebhookWorker;
+
+    /**
+     * Queue depth and wait times of the keyed execution lanes
+     */
+    @GetMapping
+    public ResponseEntity<List<KeyedExecutor.Stats>> getLaneStats() {
+        return ResponseEntity.ok(List.of(skroutzWebhookWorker.laneStats()));
+    }
+}
@@ -1,7 +1,7 @@
 package com.ludogoriesoft.sigmatherm.controller;
 
 import com.ludogoriesoft.sigmatherm.dto.microinvest.OperationDto;
-import com.ludogoriesoft.sigmatherm.dto.microinvest.StoreDto;
+import com.ludogoriesoft.sigmatherm.dto.response.StockDriftReport;
 import com.ludogoriesoft.sigmatherm.service.MicroinvestService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -29,9 +29,7 @@ public class MicroinvestController {
             @RequestParam("from-date") LocalDate fromDate,
             @RequestParam("to-date") LocalDate toDate
     ) {
-        List<OperationDto> response = microinvestService
-                .fetchOperationsFromMicroinvestApi(operationType, fromDate, toDate)
-                .orElse(List.of());
+        List<OperationDto> response = microinvestService.fetchOperations(operationType, fromDate, toDate);
         return ResponseEntity.ok().body(response);
     }
 
@@ -48,8 +46,8 @@ public class MicroinvestController {
     }
 
     @GetMapping("/store")
-    public ResponseEntity<List<StoreDto>> getStore() {
-        List<StoreDto> response = microinvestService.fetchAllStoreQuantitiesFromMicroinvestApi();
+    public ResponseEntity<StockDriftReport> reconcileStore(@RequestParam(defaultValue = "false") boolean apply) {
+        StockDriftReport response = microinvestService.reconcileStoreQuantities(apply);
         return ResponseEntity.ok(response);
     }
 
@@ -67,19 +65,29 @@ public class MicroinvestController {
 
     @GetMapping("/items")
     public ResponseEntity<String> fillItemsInDb() {
-        microinvestService.fetchAllItemsFromMicroinvestApi();
+        microinvestService.fetchAllItemsFromMicroinvestApi(false);
         return ResponseEntity.ok().body("Mission complete!");
     }
 
     @GetMapping("/orders")
-    public ResponseEntity<String> processOrders(@RequestParam("from") LocalDate from, @RequestParam("to") LocalDate to) {
-        microinvestService.processMicroinvestOrders(from, to);
+    public ResponseEntity<String> processOrders(@RequestParam("from") LocalDate from, @RequestParam("to") LocalDate to,
+                                                @RequestParam(value = "chunk-days", required = false) Integer chunkDays) {
+        if (chunkDays != null) {
+            microinvestService.processMicroinvestOrders(from, to, chunkDays);
+        } else {
+            microinvestService.processMicroinvestOrders(from, to);
+        }
         return ResponseEntity.ok().body("Orders complete!");
     }
 
     @GetMapping("/returns")
-    public ResponseEntity<String> processReturns(@RequestParam("from") LocalDate from, @RequestParam("to") LocalDate to) {
-        microinvestService.processMicroinvestReturns(from, to);
+    public ResponseEntity<String> processReturns(@RequestParam("from") LocalDate from, @RequestParam("to") LocalDate to,
+                                                 @RequestParam(value = "chunk-days", required = false) Integer chunkDays) {
+        if (chunkDays != null) {
+            microinvestService.processMicroinvestReturns(from, to, chunkDays);
+        } else {
+            microinvestService.processMicroinvestReturns(from, to);
+        }
         return ResponseEntity.ok().body("Returns complete!");
     }
 }
@@ -0,0 +1,41 @@
+package com.ludogoriesoft.sigmatherm.controller;
+
+import com.ludogoriesoft.sigmatherm.model.MicroinvestOutboxEntry;
+import com.ludogoriesoft.sigmatherm.model.enums.OutboxStatus;
+import com.ludogoriesoft.sigmatherm.service.MicroinvestOutboxService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/admin/microinvest-outbox")
+public class MicroinvestOutboxController {
+
+    private final MicroinvestOutboxService microinvestOutboxService;
+
+    @GetMapping
+    public ResponseEntity<List<MicroinvestOutboxEntry>> getEntries(
+            @RequestParam(defaultValue = "DEAD") OutboxStatus status) {
+        return ResponseEntity.ok(microinvestOutboxService.getEntries(status));
+    }
+
+    @PostMapping("/{id}/replay")
+    public ResponseEntity<MicroinvestOutboxEntry> replay(@PathVariable UUID id) {
+        return ResponseEntity.ok(microinvestOutboxService.replay(id));
+    }
+
+    @PostMapping("/replay")
+    public ResponseEntity<String> replayDead() {
+        int replayed = microinvestOutboxService.replayDead();
+        return ResponseEntity.ok("Replaying " + replayed + " dead operations");
+    }
+}
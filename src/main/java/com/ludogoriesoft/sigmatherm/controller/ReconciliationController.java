@@ -0,0 +1,27 @@
+package com.ludogoriesoft.sigmatherm.controller;
+
+import com.ludogoriesoft.sigmatherm.dto.response.StockDriftReport;
+import com.ludogoriesoft.sigmatherm.model.enums.Platform;
+import com.ludogoriesoft.sigmatherm.service.StockReconciliationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/reconciliation")
+public class ReconciliationController {
+
+    private final StockReconciliationService stockReconciliationService;
+
+    @GetMapping("/{platform}")
+    public ResponseEntity<StockDriftReport> reconcile(@PathVariable Platform platform,
+                                                      @RequestParam(defaultValue = "false") boolean correct) {
+        StockDriftReport report = stockReconciliationService.reconcile(platform, correct);
+        return ResponseEntity.ok().body(report);
+    }
+}
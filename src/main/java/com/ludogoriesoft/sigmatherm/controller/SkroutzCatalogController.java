@@ -0,0 +1,33 @@
+package com.ludogoriesoft.sigmatherm.controller;
+
+import com.ludogoriesoft.sigmatherm.service.SkroutzCatalogService;
+import com.ludogoriesoft.sigmatherm.service.SkroutzFeedService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/admin/skroutz-catalog")
+public class SkroutzCatalogController {
+
+    private final SkroutzCatalogService skroutzCatalogService;
+    private final SkroutzFeedService skroutzFeedService;
+
+    /**
+     * Re-import the catalog from the currently published feed
+     */
+    @PostMapping("/import")
+    public ResponseEntity<String> importCatalog() throws Exception {
+        int products = skroutzCatalogService.importCatalog(skroutzFeedService.getFeedPath());
+        return ResponseEntity.ok("Imported " + products + " products into the Skroutz catalog");
+    }
+
+    @PostMapping("/generate-feed")
+    public ResponseEntity<String> generateFeed() throws Exception {
+        int products = skroutzCatalogService.generateFeed();
+        return ResponseEntity.ok("Generated the Skroutz feed with " + products + " products");
+    }
+}
@@ -2,11 +2,16 @@ package com.ludogoriesoft.sigmatherm.controller;
 
 import com.ludogoriesoft.sigmatherm.service.SkroutzFeedService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
 
 @RestController
 @RequiredArgsConstructor
@@ -15,8 +20,54 @@ public class SkroutzFeedController {
 
     private final SkroutzFeedService feedService;
 
+    /**
+     * Serve the cached feed, gzipped when the client accepts it, with a 304 for a matching
+     * If-None-Match or If-Modified-Since
+     */
     @GetMapping("/feed.xml")
-    public Resource serveFeed() {
-        return new FileSystemResource(feedService.getFeedFile());
+    public ResponseEntity<byte[]> serveFeed(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            ServletWebRequest request) throws IOException {
+        SkroutzFeedService.FeedSnapshot feed = feedService.getFeed();
+        boolean gzipped = acceptsGzip(acceptEncoding);
+
+        request.getResponse().setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (request.checkNotModified(feed.etag(gzipped), feed.lastModified())) {
+            feedService.recordFeedRequest(true);
+            return null;
+        }
+        feedService.recordFeedRequest(false);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_XML);
+        if (gzipped) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        // The cached array is written as is, without reading or copying the file per request
+        return response.body(gzipped ? feed.gzip() : feed.xml());
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String token : acceptEncoding.split(",")) {
+            String[] parts = token.trim().split(";");
+            if (!"gzip".equalsIgnoreCase(parts[0].trim())) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(parameter.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
     }
 }
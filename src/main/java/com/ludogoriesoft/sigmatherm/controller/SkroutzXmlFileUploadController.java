@@ -1,5 +1,8 @@
 package com.ludogoriesoft.sigmatherm.controller;
 
+import com.ludogoriesoft.sigmatherm.service.SkroutzCatalogService;
+import com.ludogoriesoft.sigmatherm.service.SkroutzFeedService;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -9,7 +12,6 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -17,11 +19,15 @@ import java.nio.file.StandardCopyOption;
 
 @Slf4j
 @RestController
+@RequiredArgsConstructor
 @RequestMapping("/api/files")
 public class SkroutzXmlFileUploadController {
     private static final String UPLOAD_DIR = "/app/feeds";
     private static final String FILE_NAME = "skroutz_feed.xml";
 
+    private final SkroutzFeedService skroutzFeedService;
+    private final SkroutzCatalogService skroutzCatalogService;
+
     @PostMapping("/upload")
     public ResponseEntity<String> uploadFile(@RequestParam("file") MultipartFile file) {
         if (file.isEmpty()) {
@@ -35,10 +41,27 @@ public class SkroutzXmlFileUploadController {
             }
 
             Path filePath = uploadPath.resolve(FILE_NAME);
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+            // Written next to the feed first, so Skroutz never downloads a partial or invalid upload
+            Path tempPath = Files.createTempFile(uploadPath, ".skroutz_feed", ".tmp");
+            try {
+                Files.copy(file.getInputStream(), tempPath, StandardCopyOption.REPLACE_EXISTING);
+
+                SkroutzFeedService.FeedValidation validation = skroutzFeedService.validateFeed(tempPath);
+                if (!validation.valid()) {
+                    return ResponseEntity.badRequest().body(String.format("Invalid Skroutz feed, %d errors: %s",
+                            validation.errorCount(), String.join("; ", validation.errors())));
+                }
 
-            return ResponseEntity.ok("File uploaded successfully: " + filePath);
-        } catch (IOException e) {
+                // The catalog indexes the published feed, so it is imported before the swap
+                skroutzCatalogService.importCatalog(tempPath);
+                skroutzFeedService.publish(tempPath);
+
+                return ResponseEntity.ok(String.format("File uploaded successfully: %s (%d products)",
+                        filePath, validation.products()));
+            } finally {
+                Files.deleteIfExists(tempPath);
+            }
+        } catch (Exception e) {
             log.error(e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Could not upload the file");
         }
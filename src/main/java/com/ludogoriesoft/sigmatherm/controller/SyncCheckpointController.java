@@ -0,0 +1,33 @@
+package com.ludogoriesoft.sigmatherm.controller;
+
+import com.ludogoriesoft.sigmatherm.model.SyncCheckpoint;
+import com.ludogoriesoft.sigmatherm.service.SyncCheckpointService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/admin/sync-checkpoints")
+public class SyncCheckpointController {
+
+    private final SyncCheckpointService syncCheckpointService;
+
+    @GetMapping
+    public ResponseEntity<List<SyncCheckpoint>> getCheckpoints() {
+        return ResponseEntity.ok(syncCheckpointService.getCheckpoints());
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteCheckpoint(@PathVariable UUID id) {
+        syncCheckpointService.deleteCheckpoint(id);
+        return ResponseEntity.noContent().build();
+    }
+}
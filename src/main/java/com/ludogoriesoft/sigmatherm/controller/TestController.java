@@ -93,6 +93,12 @@ public class TestController {
         return ResponseEntity.ok().body(response);
     }
 
+    @PostMapping("/bol/import-offers")
+    public ResponseEntity<String> importBolOffers() {
+        int imported = bolService.importOfferExport();
+        return ResponseEntity.ok().body("Imported " + imported + " BOL offer mappings");
+    }
+
     @GetMapping("/bol/update-stock")
     public ResponseEntity<String> updateStock(@RequestParam("offerId") String offerId, @RequestParam("stock") int stock) {
         bolService.processStockUpdateToBol(offerId, stock);
@@ -0,0 +1,24 @@
+package com.ludogoriesoft.sigmatherm.dto.bol;
+
+import lombok.Data;
+
+import java.time.OffsetDateTime;
+
+@Data
+public class ProcessStatus {
+    private String processStatusId;
+    private String entityId;
+    private String eventType;
+    private String description;
+    private String status;
+    private String errorMessage;
+    private OffsetDateTime createTimestamp;
+
+    public boolean isPending() {
+        return "PENDING".equals(status);
+    }
+
+    public boolean isSuccess() {
+        return "SUCCESS".equals(status);
+    }
+}
@@ -0,0 +1,25 @@
+package com.ludogoriesoft.sigmatherm.dto.bol;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+public class ProcessStatusResponse {
+    private List<ProcessStatus> processStatuses;
+
+    @Data
+    @AllArgsConstructor
+    public static class BulkRequest {
+        private List<Query> processStatusQueries;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Query {
+        private String processStatusId;
+    }
+}
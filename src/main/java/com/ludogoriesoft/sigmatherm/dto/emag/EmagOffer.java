@@ -0,0 +1,31 @@
+package com.ludogoriesoft.sigmatherm.dto.emag;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class EmagOffer {
+    private String id;
+    private String part_number;
+    private Integer general_stock;
+    private List<EmagOfferStock> stock;
+
+    @Data
+    public static class EmagOfferStock {
+        private Integer warehouse_id;
+        private Integer value;
+    }
+
+    public int getTotalStock() {
+        if (general_stock != null) {
+            return general_stock;
+        }
+        if (stock == null) {
+            return 0;
+        }
+        return stock.stream()
+                .mapToInt(s -> s.getValue() != null ? s.getValue() : 0)
+                .sum();
+    }
+}
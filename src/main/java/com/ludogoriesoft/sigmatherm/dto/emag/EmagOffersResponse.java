@@ -0,0 +1,13 @@
+package com.ludogoriesoft.sigmatherm.dto.emag;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class EmagOffersResponse {
+    private boolean isError;
+    private List<String> messages;
+    private List<Object> errors;
+    private List<EmagOffer> results;
+}
@@ -0,0 +1,30 @@
+package com.ludogoriesoft.sigmatherm.dto.response;
+
+import com.ludogoriesoft.sigmatherm.model.enums.Platform;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class StockDriftReport {
+    private Platform platform;
+    private int checked;
+    private int matched;
+    private int mismatched;
+    private int unknownProducts;
+    private int correctionsQueued;
+    private boolean truncated;
+    private List<Drift> drifts = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Drift {
+        private String productId;
+        private int channelStock;
+        private int ourStock;
+    }
+}
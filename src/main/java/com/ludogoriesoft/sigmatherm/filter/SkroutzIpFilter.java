@@ -1,22 +1,47 @@
 package com.ludogoriesoft.sigmatherm.filter;
 
+import com.ludogoriesoft.sigmatherm.helper.CidrMatcher;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+/**
+ * Only lets webhook requests through from the configured Skroutz ranges. X-Forwarded-For is
+ * only read when the connection comes from a trusted proxy, and then from the right, so a
+ * client cannot choose the address it is checked by. Decisions are cached per client address.
+ */
 public class SkroutzIpFilter extends OncePerRequestFilter {
 
   private static final Logger logger = Logger.getLogger(SkroutzIpFilter.class.getName());
 
   private static final String REQUEST_URI = "/api/skroutz-orders";
-  private static final List<String> ALLOWED_IP_PREFIXES =
-      Arrays.asList("185.6.76.", "185.6.77.", "185.6.78.", "185.6.79.", "2a03:e40:");
+  private static final String FORWARDED_FOR = "X-Forwarded-For";
+
+  private final CidrMatcher allowedRanges;
+  private final CidrMatcher trustedProxies;
+  private final int decisionCacheSize;
+  private final Map<String, Boolean> decisions = new ConcurrentHashMap<>();
+
+  public SkroutzIpFilter(String allowedCidrs, String trustedProxyCidrs, int decisionCacheSize) {
+    this.allowedRanges = CidrMatcher.parse(allowedCidrs);
+    this.trustedProxies = CidrMatcher.parse(trustedProxyCidrs);
+    this.decisionCacheSize = decisionCacheSize;
+    if (allowedRanges.isEmpty()) {
+      logger.warning("No Skroutz webhook IP ranges configured, every webhook request is blocked");
+    }
+    logger.info(
+        "Skroutz webhook allowlist: "
+            + allowedRanges.size()
+            + " ranges, "
+            + trustedProxies.size()
+            + " trusted proxy ranges");
+  }
 
   @Override
   protected void doFilterInternal(
@@ -26,44 +51,67 @@ public class SkroutzIpFilter extends OncePerRequestFilter {
     if (request.getRequestURI().equals(REQUEST_URI)) {
       String remoteIp = getClientIp(request);
 
-      boolean isFromSkroutz = ALLOWED_IP_PREFIXES.stream().anyMatch(remoteIp::startsWith);
-
-      if (!isFromSkroutz) {
-        logger.warning("Blocked request from unauthorized IP: " + remoteIp);
+      if (!isAllowed(remoteIp)) {
+        if (remoteIp != null
+            && remoteIp.equals(request.getRemoteAddr())
+            && request.getHeader(FORWARDED_FOR) != null) {
+          logger.warning(
+              "Blocked request from unauthorized IP: "
+                  + remoteIp
+                  + " (X-Forwarded-For ignored; if this is the reverse proxy, add it to"
+                  + " skroutz.webhook.trusted-proxies)");
+        } else {
+          logger.warning("Blocked request from unauthorized IP: " + remoteIp);
+        }
         response.setStatus(HttpServletResponse.SC_FORBIDDEN);
         response.getWriter().write("Access denied: Request not from Skroutz IP range");
         return;
       }
 
-      logger.info("Allowed request from Skroutz IP: " + remoteIp);
+      logger.fine("Allowed request from Skroutz IP: " + remoteIp);
     }
 
     filterChain.doFilter(request, response);
   }
 
-  private String getClientIp(HttpServletRequest request) {
-    String ip = request.getHeader("X-Forwarded-For");
-
-    if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-      ip = request.getHeader("Proxy-Client-IP");
+  private boolean isAllowed(String ip) {
+    if (ip == null) {
+      return false;
     }
-    if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-      ip = request.getHeader("WL-Proxy-Client-IP");
+    Boolean cached = decisions.get(ip);
+    if (cached != null) {
+      return cached;
     }
-    if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-      ip = request.getHeader("HTTP_CLIENT_IP");
-    }
-    if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-      ip = request.getHeader("HTTP_X_FORWARDED_FOR");
-    }
-    if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-      ip = request.getRemoteAddr();
+    boolean allowed = allowedRanges.matches(ip);
+    // Spoofed or scanning sources could grow the cache without bound, so it starts over when full
+    if (decisions.size() >= decisionCacheSize) {
+      decisions.clear();
     }
+    decisions.put(ip, allowed);
+    return allowed;
+  }
 
-    if (ip != null && ip.contains(",")) {
-      ip = ip.split(",")[0].trim();
+  /**
+   * The connecting address, or when that is a trusted proxy, the right-most X-Forwarded-For
+   * entry that is not a trusted proxy itself
+   */
+  private String getClientIp(HttpServletRequest request) {
+    String ip = request.getRemoteAddr();
+    if (trustedProxies.isEmpty() || !trustedProxies.matches(ip)) {
+      return ip;
     }
 
+    String forwardedFor = request.getHeader(FORWARDED_FOR);
+    if (forwardedFor == null || forwardedFor.isBlank()) {
+      return ip;
+    }
+    String[] hops = forwardedFor.split(",");
+    for (int i = hops.length - 1; i >= 0; i--) {
+      ip = hops[i].trim();
+      if (!trustedProxies.matches(ip)) {
+        return ip;
+      }
+    }
     return ip;
   }
 }
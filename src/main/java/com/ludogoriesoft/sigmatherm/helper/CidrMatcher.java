@@ -0,0 +1,150 @@
+package com.ludogoriesoft.sigmatherm.helper;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * Set of IPv4 and IPv6 CIDR ranges compiled into one binary trie per address family, so a
+ * lookup walks at most 32 or 128 bits. Built once and read-only afterwards, so it is safe to
+ * share between threads. IPv4-mapped IPv6 addresses match the IPv4 ranges.
+ */
+public final class CidrMatcher {
+
+    private static final Pattern IPV4_LITERAL = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");
+    private static final int ROOT_V4 = 0;
+    private static final int ROOT_V6 = 1;
+
+    // Node n has its children at 2n and 2n + 1, 0 meaning none; the roots are never a child
+    private int[] children = new int[32];
+    private boolean[] terminal = new boolean[16];
+    private int nodes = 2;
+    private int ranges;
+
+    private CidrMatcher() {
+    }
+
+    /**
+     * @param cidrs comma separated ranges such as 185.6.76.0/22,2a03:e40::/32; a plain address
+     *              is a single host
+     * @throws IllegalArgumentException for an entry that is not an address literal or has an
+     *                                  invalid prefix length
+     */
+    public static CidrMatcher parse(String cidrs) {
+        CidrMatcher matcher = new CidrMatcher();
+        if (cidrs == null) {
+            return matcher;
+        }
+        for (String entry : cidrs.split(",")) {
+            if (!entry.isBlank()) {
+                matcher.add(entry.trim());
+            }
+        }
+        return matcher;
+    }
+
+    /**
+     * @return the parsed address literal, or null if the text is not one. Host names are never
+     * resolved.
+     */
+    public static InetAddress parseAddress(String text) {
+        if (text == null) {
+            return null;
+        }
+        String literal = text.trim();
+        if (literal.startsWith("[") && literal.endsWith("]")) {
+            literal = literal.substring(1, literal.length() - 1);
+        }
+        // Anything else would make InetAddress fall back to a DNS lookup
+        if (!literal.contains(":") && !IPV4_LITERAL.matcher(literal).matches()) {
+            return null;
+        }
+        try {
+            return InetAddress.getByName(literal);
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    public boolean matches(String address) {
+        InetAddress parsed = parseAddress(address);
+        return parsed != null && matches(parsed);
+    }
+
+    public boolean matches(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        int node = address instanceof Inet4Address ? ROOT_V4 : ROOT_V6;
+        for (int bit = 0; ; bit++) {
+            if (terminal[node]) {
+                return true;
+            }
+            if (bit == bytes.length * 8) {
+                return false;
+            }
+            node = children[2 * node + bitAt(bytes, bit)];
+            if (node == 0) {
+                return false;
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return ranges == 0;
+    }
+
+    public int size() {
+        return ranges;
+    }
+
+    private void add(String cidr) {
+        int slash = cidr.indexOf('/');
+        InetAddress address = parseAddress(slash < 0 ? cidr : cidr.substring(0, slash));
+        if (address == null) {
+            throw new IllegalArgumentException("Invalid address in CIDR '" + cidr + "'");
+        }
+        byte[] bytes = address.getAddress();
+        int maxPrefix = bytes.length * 8;
+        int prefix;
+        try {
+            prefix = slash < 0 ? maxPrefix : Integer.parseInt(cidr.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid prefix length in CIDR '" + cidr + "'");
+        }
+        if (prefix < 0 || prefix > maxPrefix) {
+            throw new IllegalArgumentException("Prefix length of '" + cidr + "' must be between 0 and " + maxPrefix);
+        }
+
+        int node = address instanceof Inet4Address ? ROOT_V4 : ROOT_V6;
+        for (int bit = 0; bit < prefix && !terminal[node]; bit++) {
+            int slot = 2 * node + bitAt(bytes, bit);
+            if (children[slot] == 0) {
+                // Grow first: newNode() may replace the children array
+                int child = newNode();
+                children[slot] = child;
+            }
+            node = children[slot];
+        }
+        // A range inside a wider one that is already present adds nothing
+        terminal[node] = true;
+        ranges++;
+    }
+
+    private int newNode() {
+        if (nodes == terminal.length) {
+            terminal = Arrays.copyOf(terminal, nodes * 2);
+            children = Arrays.copyOf(children, nodes * 4);
+        }
+        return nodes++;
+    }
+
+    private static int bitAt(byte[] bytes, int bit) {
+        return (bytes[bit >>> 3] >>> (7 - (bit & 7))) & 1;
+    }
+
+    @Override
+    public String toString() {
+        return "CidrMatcher{" + ranges + " ranges, " + nodes + " nodes}";
+    }
+}
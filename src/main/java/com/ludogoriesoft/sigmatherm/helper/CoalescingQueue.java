@@ -0,0 +1,54 @@
+package com.ludogoriesoft.sigmatherm.helper;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keyed queue that keeps only the latest value per key (last write wins).
+ * Producers overwrite pending values freely; a consumer periodically drains
+ * the current snapshot. A value written while a drain is in progress is
+ * never lost - it either lands in the current snapshot or stays for the next one.
+ */
+public class CoalescingQueue<K, V> {
+
+    private final ConcurrentHashMap<K, V> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Queue a value, replacing any value still pending for the same key
+     * @return true if an older pending value was replaced
+     */
+    public boolean offer(K key, V value) {
+        return pending.put(key, value) != null;
+    }
+
+    /**
+     * Queue a value only if nothing newer is pending for the key (used for retries)
+     */
+    public void offerIfAbsent(K key, V value) {
+        pending.putIfAbsent(key, value);
+    }
+
+    /**
+     * Remove and return everything that is currently pending
+     */
+    public Map<K, V> drain() {
+        Map<K, V> snapshot = new LinkedHashMap<>();
+        for (Map.Entry<K, V> entry : pending.entrySet()) {
+            K key = entry.getKey();
+            V value = entry.getValue();
+            if (pending.remove(key, value)) {
+                snapshot.put(key, value);
+            }
+        }
+        return snapshot;
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    public boolean isEmpty() {
+        return pending.isEmpty();
+    }
+}
@@ -0,0 +1,178 @@
+package com.ludogoriesoft.sigmatherm.helper;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs tasks on a fixed set of single-threaded lanes, picked by hashing the task's key. Tasks
+ * with the same key run one at a time in submission order; tasks whose keys land on different
+ * lanes run in parallel. A task that submits to its own executor and waits would block its
+ * lane, so {@link #call} runs such nested work inline instead.
+ */
+@Slf4j
+public class KeyedExecutor implements AutoCloseable {
+
+    private final String name;
+    private final Lane[] lanes;
+    private final ThreadLocal<Boolean> onLane = ThreadLocal.withInitial(() -> false);
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private volatile boolean running = true;
+
+    public KeyedExecutor(String name, int laneCount, ThreadFactory threadFactory) {
+        this.name = name;
+        this.lanes = new Lane[Math.max(1, laneCount)];
+        for (int i = 0; i < lanes.length; i++) {
+            Lane lane = new Lane();
+            lane.thread = threadFactory.newThread(() -> runLane(lane));
+            lane.thread.setName(name + "-lane-" + i);
+            lanes[i] = lane;
+        }
+        for (Lane lane : lanes) {
+            lane.thread.start();
+        }
+    }
+
+    public <T> CompletableFuture<T> submit(Object key, Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (!running) {
+            result.completeExceptionally(new IllegalStateException(name + " executor is shut down"));
+            return result;
+        }
+        submitted.increment();
+        laneOf(key).queue.add(new Task<>(task, result, System.nanoTime()));
+        return result;
+    }
+
+    /**
+     * Run the task on its key's lane and wait for it, rethrowing its runtime exception
+     */
+    public <T> T call(Object key, Callable<T> task) {
+        if (onLane.get()) {
+            return callInline(task);
+        }
+        try {
+            return submit(key, task).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+
+    public void run(Object key, Runnable task) {
+        call(key, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    public Stats stats() {
+        int queued = 0;
+        int deepest = 0;
+        for (Lane lane : lanes) {
+            int depth = lane.queue.size();
+            queued += depth;
+            deepest = Math.max(deepest, depth);
+        }
+        long done = completed.sum();
+        return new Stats(name, lanes.length, queued, deepest, submitted.sum(), done,
+                done == 0 ? 0 : waitNanos.sum() / done / 1_000_000, maxWaitNanos.get() / 1_000_000);
+    }
+
+    /**
+     * Stop accepting tasks, finish the queued ones and wait for the lanes to end
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (Lane lane : lanes) {
+            try {
+                lane.thread.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private Lane laneOf(Object key) {
+        int hash = key == null ? 0 : key.hashCode();
+        hash ^= hash >>> 16;
+        return lanes[Math.floorMod(hash, lanes.length)];
+    }
+
+    private void runLane(Lane lane) {
+        onLane.set(true);
+        while (running || !lane.queue.isEmpty()) {
+            Task<?> task;
+            try {
+                // Polled rather than taken, so close() can stop the lane without interrupting a task
+                task = lane.queue.poll(200, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (task == null) {
+                continue;
+            }
+            long waited = System.nanoTime() - task.enqueuedAt();
+            waitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            task.run(completed);
+        }
+    }
+
+    private static <T> T callInline(Callable<T> task) {
+        try {
+            return task.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static final class Lane {
+        private final BlockingQueue<Task<?>> queue = new LinkedBlockingQueue<>();
+        private Thread thread;
+    }
+
+    private record Task<T>(Callable<T> callable, CompletableFuture<T> result, long enqueuedAt) {
+        // Counted before the result completes, so a caller that saw it finish also sees it counted
+        void run(LongAdder completed) {
+            T value;
+            try {
+                value = callable.call();
+            } catch (Throwable e) {
+                completed.increment();
+                result.completeExceptionally(e);
+                return;
+            }
+            completed.increment();
+            result.complete(value);
+        }
+    }
+
+    /**
+     * @param queued       tasks waiting on all lanes
+     * @param deepestLane  tasks waiting on the busiest lane
+     * @param avgWaitMs    mean time a task waited before it started
+     * @param maxWaitMs    longest time a task waited before it started
+     */
+    public record Stats(String name, int lanes, int queued, int deepestLane, long submitted, long completed,
+                        long avgWaitMs, long maxWaitMs) {
+    }
+}
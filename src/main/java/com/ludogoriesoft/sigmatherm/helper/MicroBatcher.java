@@ -0,0 +1,123 @@
+package com.ludogoriesoft.sigmatherm.helper;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects submitted items on a single dispatcher thread and hands them to a handler in batches.
+ * A batch is closed when it holds maxBatchSize items or maxWait has passed since its first item,
+ * so a lone item is delayed by at most maxWait while a burst goes out in a few large batches.
+ * Every caller gets its own future; the handler completes them, and any it leaves open are
+ * failed when it returns. Items that never reach the handler because of a shutdown fail with
+ * a RejectedExecutionException.
+ */
+@Slf4j
+public class MicroBatcher<T, R> implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface BatchHandler<T, R> {
+        void handle(List<Request<T, R>> batch) throws Exception;
+    }
+
+    public record Request<T, R>(T item, CompletableFuture<R> result) {
+    }
+
+    private final String name;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final BatchHandler<T, R> handler;
+    private final BlockingQueue<Request<T, R>> queue = new LinkedBlockingQueue<>();
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    public MicroBatcher(String name, int maxBatchSize, Duration maxWait, BatchHandler<T, R> handler) {
+        this.name = name;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxWaitNanos = maxWait.toNanos();
+        this.handler = handler;
+        this.dispatcher = Thread.ofPlatform().name(name + "-batcher").daemon().start(this::dispatchLoop);
+    }
+
+    public CompletableFuture<R> submit(T item) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        if (!running) {
+            result.completeExceptionally(new RejectedExecutionException(name + " batcher is shut down"));
+            return result;
+        }
+        queue.add(new Request<>(item, result));
+        return result;
+    }
+
+    public int pending() {
+        return queue.size();
+    }
+
+    /**
+     * Stop accepting items, dispatch whatever is queued and wait for the dispatcher to finish
+     */
+    @Override
+    public void close() {
+        running = false;
+        dispatcher.interrupt();
+        try {
+            dispatcher.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Request<T, R> left;
+        while ((left = queue.poll()) != null) {
+            left.result().completeExceptionally(new RejectedExecutionException(name + " batcher is shut down"));
+        }
+    }
+
+    private void dispatchLoop() {
+        while (running || !queue.isEmpty()) {
+            List<Request<T, R>> batch = new ArrayList<>(maxBatchSize);
+            try {
+                Request<T, R> first = running ? queue.take() : queue.poll();
+                if (first == null) {
+                    break;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize && running) {
+                    long remaining = deadline - System.nanoTime();
+                    Request<T, R> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Shutdown: send what was collected, then drain the rest without waiting
+            }
+            queue.drainTo(batch, maxBatchSize - batch.size());
+            if (!batch.isEmpty()) {
+                dispatch(batch);
+            }
+        }
+    }
+
+    private void dispatch(List<Request<T, R>> batch) {
+        try {
+            handler.handle(batch);
+        } catch (Exception e) {
+            log.error("{} batch of {} items failed: {}", name, batch.size(), e.getMessage());
+            batch.forEach(request -> request.result().completeExceptionally(e));
+        }
+        for (Request<T, R> request : batch) {
+            if (!request.result().isDone()) {
+                request.result().completeExceptionally(
+                        new IllegalStateException(name + " batch handler left the request without a result"));
+            }
+        }
+    }
+}
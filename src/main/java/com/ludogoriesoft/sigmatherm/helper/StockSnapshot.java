@@ -0,0 +1,118 @@
+package com.ludogoriesoft.sigmatherm.helper;
+
+import java.util.Arrays;
+
+/**
+ * Immutable, compact id -> stock snapshot backed by a sorted id array and a parallel int array.
+ * Lookups are binary searches, with no per-entry boxing or hash nodes.
+ */
+public final class StockSnapshot {
+
+    private final String[] ids;
+    private final int[] stocks;
+
+    private StockSnapshot(String[] ids, int[] stocks) {
+        this.ids = ids;
+        this.stocks = stocks;
+    }
+
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @return index of the id, or a negative value when it is not in the snapshot
+     */
+    public int indexOf(String id) {
+        return id == null ? -1 : Arrays.binarySearch(ids, id);
+    }
+
+    public boolean contains(String id) {
+        return indexOf(id) >= 0;
+    }
+
+    /**
+     * @return stock for the id, or {@code missingValue} when it is not in the snapshot
+     */
+    public int stockOf(String id, int missingValue) {
+        int index = indexOf(id);
+        return index >= 0 ? stocks[index] : missingValue;
+    }
+
+    public String idAt(int index) {
+        return ids[index];
+    }
+
+    public int stockAt(int index) {
+        return stocks[index];
+    }
+
+    public static final class Builder {
+        private String[] ids;
+        private int[] stocks;
+        private int size;
+
+        private Builder(int expectedSize) {
+            int capacity = Math.max(16, expectedSize);
+            this.ids = new String[capacity];
+            this.stocks = new int[capacity];
+        }
+
+        public Builder add(String id, int stock) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                stocks = Arrays.copyOf(stocks, size * 2);
+            }
+            ids[size] = id;
+            stocks[size] = stock;
+            size++;
+            return this;
+        }
+
+        public StockSnapshot build() {
+            int[] order = sortedOrder();
+            String[] sortedIds = new String[size];
+            int[] sortedStocks = new int[size];
+            for (int i = 0; i < size; i++) {
+                sortedIds[i] = ids[order[i]];
+                sortedStocks[i] = stocks[order[i]];
+            }
+            return new StockSnapshot(sortedIds, sortedStocks);
+        }
+
+        /**
+         * Positions of the added entries in id order. A bottom-up merge sort over int indexes,
+         * so sorting boxes nothing; it is stable, so equal ids keep their insertion order.
+         */
+        private int[] sortedOrder() {
+            int[] order = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            int[] buffer = new int[size];
+            for (int width = 1; width < size; width *= 2) {
+                for (int from = 0; from < size - width; from += 2 * width) {
+                    merge(order, buffer, from, from + width, Math.min(from + 2 * width, size));
+                }
+            }
+            return order;
+        }
+
+        private void merge(int[] order, int[] buffer, int from, int middle, int to) {
+            System.arraycopy(order, from, buffer, from, to - from);
+            int left = from;
+            int right = middle;
+            for (int i = from; i < to; i++) {
+                if (right >= to || (left < middle && ids[buffer[left]].compareTo(ids[buffer[right]]) <= 0)) {
+                    order[i] = buffer[left++];
+                } else {
+                    order[i] = buffer[right++];
+                }
+            }
+        }
+    }
+}
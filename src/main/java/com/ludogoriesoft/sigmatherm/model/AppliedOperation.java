@@ -0,0 +1,50 @@
+package com.ludogoriesoft.sigmatherm.model;
+
+import com.ludogoriesoft.sigmatherm.model.enums.Platform;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Source operation whose stock movement has been applied. Inserted in the same
+ * transaction as the stock change, so an operation id is applied at most once.
+ */
+@Entity
+@Table(name = "applied_operations", indexes = {
+        @Index(name = "idx_applied_operations_applied_at", columnList = "applied_at")
+})
+@IdClass(AppliedOperation.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppliedOperation {
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    private Platform platform;
+
+    @Id
+    private Long operationId;
+
+    @Column(nullable = false)
+    private LocalDateTime appliedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Platform platform;
+        private Long operationId;
+    }
+}
@@ -0,0 +1,35 @@
+package com.ludogoriesoft.sigmatherm.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "bol_offers", indexes = {
+        @Index(name = "idx_bol_offers_reference", columnList = "reference")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BolOffer {
+
+    @Id
+    private String offerId;
+
+    // Our product id, sent to BOL as the offer reference
+    @Column(nullable = false)
+    private String reference;
+
+    private String ean;
+
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,50 @@
+package com.ludogoriesoft.sigmatherm.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Quantity of a product at one Microinvest location (object), as last read from /Store.
+ * Product.locationStock holds the weighted sum over all locations.
+ */
+@Entity
+@Table(name = "location_stock", indexes = {
+        @Index(name = "idx_location_stock_synced_at", columnList = "synced_at")
+})
+@IdClass(LocationStock.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LocationStock {
+
+    @Id
+    private String productId;
+
+    @Id
+    private Long objectId;
+
+    @Column(nullable = false)
+    private int quantity;
+
+    // Start of the /Store pass that last saw the row; older rows are gone from Microinvest
+    @Column(nullable = false)
+    private LocalDateTime syncedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String productId;
+        private Long objectId;
+    }
+}
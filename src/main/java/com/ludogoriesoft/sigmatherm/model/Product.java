@@ -41,4 +41,10 @@ public class Product {
   private String status = "4";
   private String vatId;
   private String handlingTime = "1";
+
+  // Weighted sum of the Microinvest location stocks; null until the first /Store pass
+  private Integer locationStock;
+
+  // Hash of the imported source fields; an import skips the row while it is unchanged
+  private String contentHash;
 }
@@ -0,0 +1,69 @@
+package com.ludogoriesoft.sigmatherm.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Static attributes of a product in the Skroutz feed, imported from the uploaded feed file.
+ * Values are kept as text exactly as they appeared in the file; the generated feed adds the
+ * quantity from the product's stock.
+ */
+@Entity
+@Table(name = "skroutz_catalog")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SkroutzCatalogEntry {
+
+    @Id
+    private String mpn;
+
+    // The <id> of the product in the feed, which need not equal the mpn
+    private String feedId;
+
+    @Column(length = 1024)
+    private String name;
+
+    @Column(length = 2048)
+    private String link;
+
+    @Column(length = 2048)
+    private String image;
+
+    @Column(length = 2048)
+    private String additionalImage2;
+
+    @Column(length = 2048)
+    private String additionalImage3;
+
+    @Column(length = 2048)
+    private String additionalImage4;
+
+    @Column(length = 2048)
+    private String additionalImage5;
+
+    @Column(length = 1024)
+    private String category;
+
+    private String priceWithVat;
+    private String vat;
+    private String manufacturer;
+    private String ean;
+    private String availability;
+    private String weight;
+    private String color;
+
+    @Column(columnDefinition = "TEXT")
+    private String description;
+
+    // Start of the import that last saw the product; older entries are gone from the file
+    @Column(nullable = false)
+    private LocalDateTime importedAt;
+}
@@ -0,0 +1,67 @@
+package com.ludogoriesoft.sigmatherm.model;
+
+import com.ludogoriesoft.sigmatherm.model.enums.InboxStatus;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Skroutz order webhook as received, stored by the endpoint in a single insert and
+ * processed later by the inbox worker.
+ */
+@Entity
+@Table(name = "skroutz_webhook_inbox", indexes = {
+        @Index(name = "idx_skroutz_webhook_inbox_due", columnList = "status, next_attempt_at"),
+        @Index(name = "idx_skroutz_webhook_inbox_order", columnList = "order_code, received_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SkroutzWebhookInboxEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false)
+    private String orderCode;
+
+    @Column(nullable = false)
+    private String eventType;
+
+    // The webhook body exactly as Skroutz sent it
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private InboxStatus status;
+
+    private int attempts;
+
+    // Earliest time of the next attempt; for PROCESSING rows, the end of the worker's lease
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(nullable = false)
+    private LocalDateTime receivedAt;
+
+    private LocalDateTime processedAt;
+}
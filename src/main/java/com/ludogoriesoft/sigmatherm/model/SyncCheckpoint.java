@@ -0,0 +1,72 @@
+package com.ludogoriesoft.sigmatherm.model;
+
+import com.ludogoriesoft.sigmatherm.model.enums.Platform;
+import com.ludogoriesoft.sigmatherm.model.enums.SyncOperation;
+import com.ludogoriesoft.sigmatherm.model.enums.SyncStatus;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Progress of a paged sync run for one platform, operation and time window.
+ * Advanced in the same transaction as the page's stock changes.
+ */
+@Entity
+@Table(name = "sync_checkpoints", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_sync_checkpoints_window", columnNames = {"platform", "operation", "window_key"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Platform platform;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private SyncOperation operation;
+
+    @Column(nullable = false)
+    private String windowKey;
+
+    // Last page (1-based) or list position whose changes are committed
+    private int lastPage;
+
+    // Id of the last committed record, for sources without stable page numbers
+    private String cursor;
+
+    // STARTED while the window is in progress, SUCCESS once every page is committed
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private SyncStatus status;
+
+    private LocalDateTime updatedAt;
+
+    public boolean isInProgress() {
+        return status == SyncStatus.STARTED;
+    }
+
+    public boolean isCompleted() {
+        return status == SyncStatus.SUCCESS;
+    }
+}
@@ -0,0 +1,8 @@
+package com.ludogoriesoft.sigmatherm.model.enums;
+
+public enum InboxStatus {
+    PENDING,     // Waiting for the worker, possibly after a failed attempt
+    PROCESSING,  // Claimed by the worker; reclaimed if the lease runs out
+    PROCESSED,   // Applied, or recognised as a duplicate or unsupported state
+    DEAD         // Gave up after the maximum number of attempts
+}
@@ -0,0 +1,8 @@
+package com.ludogoriesoft.sigmatherm.model.enums;
+
+public enum OutboxStatus {
+    PENDING,  // Waiting for the relay, possibly after a failed attempt
+    SENDING,  // Claimed by the relay; dead-lettered if the lease runs out, as it may have been sent
+    SENT,     // Accepted by the remote system
+    DEAD      // Gave up after the maximum number of attempts, waits for a manual replay
+}
@@ -7,5 +7,6 @@ public enum SyncOperation {
     FEED_UPDATE,      // Feed file updates (like Skroutz XML)
     FULL_SYNC,        // Complete synchronization
     PRODUCT_IMPORT,   // Product imports (like Microinvest items)
-    AUTH_TOKEN        // Authentication token operations
+    AUTH_TOKEN,       // Authentication token operations
+    RECONCILIATION    // Channel stock vs. our stock comparisons
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.ludogoriesoft.sigmatherm.repository;
+
+import com.ludogoriesoft.sigmatherm.model.enums.Platform;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+@Repository
+@RequiredArgsConstructor
+public class AppliedOperationJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Record the operation ids in one batch; ids that are already recorded are left alone
+     * @return the ids that were not recorded before, in input order
+     */
+    public List<Long> claim(Platform platform, List<Long> operationIds) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[][] counts = jdbcTemplate.batchUpdate(
+                "INSERT INTO applied_operations (platform, operation_id, applied_at) VALUES (?, ?, ?) " +
+                        "ON CONFLICT (platform, operation_id) DO NOTHING",
+                operationIds, operationIds.size(), (ps, id) -> {
+                    ps.setString(1, platform.name());
+                    ps.setLong(2, id);
+                    ps.setTimestamp(3, now);
+                });
+
+        List<Long> claimed = new ArrayList<>();
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count > 0) {
+                    claimed.add(operationIds.get(index));
+                }
+                index++;
+            }
+        }
+        return claimed;
+    }
+
+    public void forEachAppliedSince(Platform platform, LocalDateTime since, LongConsumer consumer) {
+        jdbcTemplate.query("SELECT operation_id FROM applied_operations WHERE platform = ? AND applied_at >= ?",
+                rs -> {
+                    consumer.accept(rs.getLong(1));
+                }, platform.name(), Timestamp.valueOf(since));
+    }
+
+    public long countAppliedSince(Platform platform, LocalDateTime since) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM applied_operations WHERE platform = ? AND applied_at >= ?",
+                Long.class, platform.name(), Timestamp.valueOf(since));
+        return count != null ? count : 0;
+    }
+
+    public int deleteAppliedBefore(LocalDateTime before) {
+        return jdbcTemplate.update("DELETE FROM applied_operations WHERE applied_at < ?", Timestamp.valueOf(before));
+    }
+}
@@ -0,0 +1,48 @@
+package com.ludogoriesoft.sigmatherm.repository;
+
+import com.ludogoriesoft.sigmatherm.model.BolOffer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Batched statements for the bol_offers table, used where JPA would issue one statement per row
+ */
+@Repository
+@RequiredArgsConstructor
+public class BolOfferJdbcRepository {
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO bol_offers (offer_id, reference, ean, updated_at)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT (offer_id) DO UPDATE
+            SET reference = EXCLUDED.reference, ean = EXCLUDED.ean, updated_at = EXCLUDED.updated_at
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void upsertAll(List<BolOffer> offers) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, offers, offers.size(), (ps, offer) -> {
+            ps.setString(1, offer.getOfferId());
+            ps.setString(2, offer.getReference());
+            ps.setString(3, offer.getEan());
+            ps.setTimestamp(4, now);
+        });
+    }
+
+    /**
+     * Streams every (reference, offerId) pair without materializing entities
+     */
+    public void forEachMapping(BiConsumer<String, String> consumer) {
+        jdbcTemplate.query("SELECT reference, offer_id FROM bol_offers",
+                rs -> {
+                    consumer.accept(rs.getString(1), rs.getString(2));
+                });
+    }
+}
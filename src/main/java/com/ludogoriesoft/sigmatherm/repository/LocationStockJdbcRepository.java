@@ -0,0 +1,101 @@
+package com.ludogoriesoft.sigmatherm.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class LocationStockJdbcRepository {
+
+    // The previous CTE reads the rows as they were before the upsert, so only real changes come back.
+    // A row already written by the same pass (same synced_at) is added to, since one product and
+    // location can be spread over several pages.
+    private static final String UPSERT_SQL = """
+            WITH incoming AS (
+                SELECT * FROM unnest(?::varchar[], ?::bigint[], ?::int[]) AS i(product_id, object_id, quantity)
+            ), previous AS (
+                SELECT l.product_id, l.object_id, l.quantity
+                FROM location_stock l JOIN incoming i USING (product_id, object_id)
+            ), upserted AS (
+                INSERT INTO location_stock (product_id, object_id, quantity, synced_at)
+                SELECT product_id, object_id, quantity, ? FROM incoming
+                ON CONFLICT (product_id, object_id) DO UPDATE
+                SET quantity = CASE WHEN location_stock.synced_at = EXCLUDED.synced_at
+                                    THEN location_stock.quantity + EXCLUDED.quantity
+                                    ELSE EXCLUDED.quantity END,
+                    synced_at = EXCLUDED.synced_at
+                RETURNING product_id, object_id, quantity
+            )
+            SELECT DISTINCT u.product_id
+            FROM upserted u LEFT JOIN previous p USING (product_id, object_id)
+            WHERE p.quantity IS DISTINCT FROM u.quantity
+            """;
+
+    // Weights are percentages; locations without an explicit weight use the default
+    private static final String AGGREGATE_SQL = """
+            UPDATE product p SET location_stock = a.total
+            FROM (
+                SELECT t.id,
+                       (SELECT (SUM(l.quantity::bigint * COALESCE(w.weight, ?)) / 100)::int
+                        FROM location_stock l
+                        LEFT JOIN unnest(?::bigint[], ?::int[]) AS w(object_id, weight) ON w.object_id = l.object_id
+                        WHERE l.product_id = t.id AND COALESCE(w.weight, ?) > 0) AS total
+                FROM %s
+            ) a
+            WHERE p.id = a.id AND p.location_stock IS DISTINCT FROM a.total
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Upsert the rows of one /Store page with a single statement. Rows must be unique per
+     * product and location within a call; rows of an earlier call with the same syncedAt are
+     * summed with them.
+     * @return ids of the products with a new or changed location quantity
+     */
+    public List<String> upsert(List<String> productIds, List<Long> objectIds, List<Integer> quantities,
+                               LocalDateTime syncedAt) {
+        return jdbcTemplate.query(UPSERT_SQL, ps -> {
+            Connection connection = ps.getConnection();
+            ps.setArray(1, connection.createArrayOf("varchar", productIds.toArray()));
+            ps.setArray(2, connection.createArrayOf("bigint", objectIds.toArray()));
+            ps.setArray(3, connection.createArrayOf("integer", quantities.toArray()));
+            ps.setTimestamp(4, Timestamp.valueOf(syncedAt));
+        }, (rs, rowNum) -> rs.getString(1));
+    }
+
+    /**
+     * Remove rows a complete /Store pass no longer returned
+     * @return ids of the products that lost a location row
+     */
+    public List<String> deleteNotSyncedSince(LocalDateTime syncedAt) {
+        return jdbcTemplate.query("DELETE FROM location_stock WHERE synced_at < ? RETURNING product_id",
+                (rs, rowNum) -> rs.getString(1), Timestamp.valueOf(syncedAt));
+    }
+
+    /**
+     * Recompute Product.locationStock of the given products, or of all products when null
+     * @return number of products whose aggregate changed
+     */
+    public int updateAggregates(Collection<String> productIds, Long[] weightedObjects, Integer[] weights,
+                                int defaultWeight) {
+        String source = productIds == null ? "product t" : "unnest(?::varchar[]) AS t(id)";
+        return jdbcTemplate.update(String.format(AGGREGATE_SQL, source), ps -> {
+            Connection connection = ps.getConnection();
+            ps.setInt(1, defaultWeight);
+            ps.setArray(2, connection.createArrayOf("bigint", weightedObjects));
+            ps.setArray(3, connection.createArrayOf("integer", weights));
+            ps.setInt(4, defaultWeight);
+            if (productIds != null) {
+                ps.setArray(5, connection.createArrayOf("varchar", productIds.toArray()));
+            }
+        });
+    }
+}
@@ -0,0 +1,35 @@
+package com.ludogoriesoft.sigmatherm.repository;
+
+import com.ludogoriesoft.sigmatherm.model.MicroinvestOutboxEntry;
+import com.ludogoriesoft.sigmatherm.model.enums.OutboxStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface MicroinvestOutboxRepository extends JpaRepository<MicroinvestOutboxEntry, UUID> {
+
+    /**
+     * Due entries in creation order, locked; rows another relay already holds are skipped
+     */
+    @Query(value = "SELECT * FROM microinvest_outbox " +
+            "WHERE status IN ('PENDING', 'SENDING') AND next_attempt_at <= :now " +
+            "ORDER BY created_at LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<MicroinvestOutboxEntry> lockDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    List<MicroinvestOutboxEntry> findByStatusOrderByCreatedAtAsc(OutboxStatus status);
+
+    long countByStatus(OutboxStatus status);
+
+    @Modifying
+    @Query("DELETE FROM MicroinvestOutboxEntry e " +
+            "WHERE e.status = com.ludogoriesoft.sigmatherm.model.enums.OutboxStatus.SENT AND e.sentAt < :before")
+    int deleteSentBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,174 @@
+package com.ludogoriesoft.sigmatherm.repository;
+
+import com.ludogoriesoft.sigmatherm.helper.StockSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Set-based product statements that bypass entity loading
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductJdbcRepository {
+
+    private static final String UPSERT_PRICE_SQL = """
+            INSERT INTO price (id, base_price, micro_invest_price)
+            VALUES (?, ?, ?)
+            ON CONFLICT (id) DO UPDATE
+            SET base_price = EXCLUDED.base_price, micro_invest_price = EXCLUDED.micro_invest_price
+            """;
+
+    // Stock, status and handling time are only set for new rows; an update never touches them
+    private static final String UPSERT_PRODUCT_SQL = """
+            INSERT INTO product (id, name, stock, status, handling_time, price_id, content_hash)
+            VALUES (?, ?, 1000, '4', '1', ?, ?)
+            ON CONFLICT (id) DO UPDATE
+            SET name = EXCLUDED.name,
+                content_hash = EXCLUDED.content_hash,
+                price_id = COALESCE(product.price_id, EXCLUDED.price_id)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Read the id and stock of every product into a compact snapshot
+     */
+    public StockSnapshot loadStockSnapshot() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product", Long.class);
+        StockSnapshot.Builder builder = StockSnapshot.builder(count != null ? count.intValue() : 0);
+        jdbcTemplate.query("SELECT id, stock FROM product", rs -> {
+            builder.add(rs.getString(1), rs.getInt(2));
+        });
+        return builder.build();
+    }
+
+    /**
+     * Add signed deltas to product stock in one batch and stamp the synchronization
+     * @return number of products that exist and were updated
+     */
+    public int applyStockDeltas(Map<String, Integer> deltas, UUID synchronizationId) {
+        return addToStocks(deltas, synchronizationId).size();
+    }
+
+    /**
+     * Same as {@link #applyStockDeltas}
+     * @return ids of the products that exist and were updated
+     */
+    public List<String> addToStocks(Map<String, Integer> deltas, UUID synchronizationId) {
+        List<String> ids = new ArrayList<>(deltas.size());
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        deltas.forEach((id, delta) -> {
+            ids.add(id);
+            args.add(new Object[]{delta, synchronizationId, id});
+        });
+
+        int[] counts = jdbcTemplate.batchUpdate(
+                "UPDATE product SET stock = stock + ?, synchronization_id = COALESCE(?, synchronization_id) WHERE id = ?",
+                args);
+
+        List<String> updated = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                updated.add(ids.get(i));
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Add a signed delta to one product's stock in place
+     * @return the new stock, or null if the product does not exist
+     */
+    public Integer addToStock(String id, int delta) {
+        List<Integer> stock = jdbcTemplate.queryForList(
+                "UPDATE product SET stock = stock + ? WHERE id = ? RETURNING stock", Integer.class, delta, id);
+        return stock.isEmpty() ? null : stock.get(0);
+    }
+
+    public int setSynchronization(String id, UUID synchronizationId) {
+        return jdbcTemplate.update("UPDATE product SET synchronization_id = ? WHERE id = ?", synchronizationId, id);
+    }
+
+    /**
+     * Set product stock to absolute values in one batch. A row is only written while its stock
+     * still equals the value the change was computed from, so concurrent movements are not lost.
+     * @return ids of the products that were updated
+     */
+    public List<String> setStocks(List<StockChange> changes, UUID synchronizationId) {
+        int[][] counts = jdbcTemplate.batchUpdate(
+                "UPDATE product SET stock = ?, synchronization_id = COALESCE(?, synchronization_id) " +
+                        "WHERE id = ? AND stock = ?",
+                changes, changes.size(), (ps, change) -> {
+                    ps.setInt(1, change.newStock());
+                    ps.setObject(2, synchronizationId);
+                    ps.setString(3, change.id());
+                    ps.setInt(4, change.expectedStock());
+                });
+
+        List<String> updated = new ArrayList<>();
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count > 0) {
+                    updated.add(changes.get(index).id());
+                }
+                index++;
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Current content hash and price id of the given products; missing ids are absent from the map
+     */
+    public Map<String, ImportState> findImportStates(List<String> ids) {
+        Map<String, ImportState> states = new HashMap<>();
+        if (ids.isEmpty()) {
+            return states;
+        }
+        jdbcTemplate.query("SELECT id, content_hash, price_id FROM product WHERE id = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", ids.toArray())),
+                rs -> {
+                    states.put(rs.getString(1), new ImportState(rs.getString(2), rs.getObject(3, UUID.class)));
+                });
+        return states;
+    }
+
+    /**
+     * Insert or update imported products and their prices with one batch per table
+     */
+    public void upsertImported(List<ImportedProduct> products) {
+        jdbcTemplate.batchUpdate(UPSERT_PRICE_SQL, products, products.size(), (ps, product) -> {
+            ps.setObject(1, product.priceId());
+            ps.setBigDecimal(2, product.basePrice());
+            ps.setBigDecimal(3, product.microinvestPrice());
+        });
+        jdbcTemplate.batchUpdate(UPSERT_PRODUCT_SQL, products, products.size(), (ps, product) -> {
+            ps.setString(1, product.id());
+            ps.setString(2, product.name());
+            ps.setObject(3, product.priceId());
+            ps.setString(4, product.contentHash());
+        });
+    }
+
+    public record StockChange(String id, int expectedStock, int newStock) {
+    }
+
+    public record ImportState(String contentHash, UUID priceId) {
+    }
+
+    /**
+     * @param priceId the product's existing price row, or a new id for products without one
+     */
+    public record ImportedProduct(String id, String name, BigDecimal basePrice, BigDecimal microinvestPrice,
+                                  String contentHash, UUID priceId) {
+    }
+}
@@ -0,0 +1,98 @@
+package com.ludogoriesoft.sigmatherm.repository;
+
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Repository
+@RequiredArgsConstructor
+public class SkroutzCatalogJdbcRepository {
+
+    /**
+     * Feed element names in feed order, each stored in the column of the same position
+     */
+    public static final List<String> ELEMENTS = List.of(
+            "id", "name", "link", "image", "additionalimage2", "additionalimage3", "additionalimage4",
+            "additionalimage5", "category", "price_with_vat", "vat", "manufacturer", "mpn", "ean",
+            "availability", "weight", "color", "description");
+
+    private static final List<String> COLUMNS = List.of(
+            "feed_id", "name", "link", "image", "additional_image2", "additional_image3", "additional_image4",
+            "additional_image5", "category", "price_with_vat", "vat", "manufacturer", "mpn", "ean",
+            "availability", "weight", "color", "description");
+
+    private static final String UPSERT_SQL = "INSERT INTO skroutz_catalog (" + String.join(", ", COLUMNS) +
+            ", imported_at) VALUES (" + "?, ".repeat(COLUMNS.size()) + "?) ON CONFLICT (mpn) DO UPDATE SET " +
+            COLUMNS.stream().filter(c -> !c.equals("mpn")).map(c -> c + " = EXCLUDED." + c)
+                    .collect(Collectors.joining(", ")) +
+            ", imported_at = EXCLUDED.imported_at";
+
+    private static final String FEED_SQL = "SELECT " +
+            COLUMNS.stream().map(c -> "c." + c).collect(Collectors.joining(", ")) +
+            ", GREATEST(COALESCE(p.stock, 0), 0) AS quantity " +
+            "FROM skroutz_catalog c LEFT JOIN product p ON p.id = c.mpn ORDER BY c.mpn";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param rows values in {@link #ELEMENTS} order
+     */
+    public void upsert(List<String[]> rows, LocalDateTime importedAt) {
+        Timestamp timestamp = Timestamp.valueOf(importedAt);
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows, rows.size(), (ps, row) -> {
+            for (int i = 0; i < row.length; i++) {
+                ps.setString(i + 1, row[i]);
+            }
+            ps.setTimestamp(row.length + 1, timestamp);
+        });
+    }
+
+    /**
+     * @return the given mpns that are in the catalog
+     */
+    public Set<String> findListed(Collection<String> mpns) {
+        Set<String> listed = new HashSet<>();
+        if (mpns.isEmpty()) {
+            return listed;
+        }
+        jdbcTemplate.query("SELECT mpn FROM skroutz_catalog WHERE mpn = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", mpns.toArray())),
+                rs -> {
+                    listed.add(rs.getString(1));
+                });
+        return listed;
+    }
+
+    public boolean isEmpty() {
+        Boolean exists = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM skroutz_catalog)", Boolean.class);
+        return exists == null || !exists;
+    }
+
+    public int deleteImportedBefore(LocalDateTime before) {
+        return jdbcTemplate.update("DELETE FROM skroutz_catalog WHERE imported_at < ?", Timestamp.valueOf(before));
+    }
+
+    /**
+     * Stream every catalog entry with its current stock, values in {@link #ELEMENTS} order followed
+     * by the quantity. Rows are fetched in chunks through a cursor, which needs a transaction.
+     */
+    @Transactional
+    public void forEachFeedProduct(int fetchSize, RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(FEED_SQL);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, handler);
+    }
+}
@@ -0,0 +1,38 @@
+package com.ludogoriesoft.sigmatherm.repository;
+
+import com.ludogoriesoft.sigmatherm.model.SkroutzWebhookInboxEntry;
+import com.ludogoriesoft.sigmatherm.model.enums.InboxStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface SkroutzWebhookInboxRepository extends JpaRepository<SkroutzWebhookInboxEntry, UUID> {
+
+    /**
+     * Due entries in arrival order, locked; rows another worker already holds are skipped. An
+     * entry waits while an earlier entry of its order is unfinished, such as one backing off
+     * after a failure, so the events of an order are applied in arrival order.
+     */
+    @Query(value = "SELECT * FROM skroutz_webhook_inbox e " +
+            "WHERE e.status IN ('PENDING', 'PROCESSING') AND e.next_attempt_at <= :now " +
+            "AND NOT EXISTS (SELECT 1 FROM skroutz_webhook_inbox earlier " +
+            "WHERE earlier.order_code = e.order_code AND earlier.received_at < e.received_at " +
+            "AND earlier.status IN ('PENDING', 'PROCESSING')) " +
+            "ORDER BY e.received_at LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<SkroutzWebhookInboxEntry> lockDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    long countByStatus(InboxStatus status);
+
+    @Modifying
+    @Query("DELETE FROM SkroutzWebhookInboxEntry e " +
+            "WHERE e.status = com.ludogoriesoft.sigmatherm.model.enums.InboxStatus.PROCESSED AND e.processedAt < :before")
+    int deleteProcessedBefore(@Param("before") LocalDateTime before);
+}
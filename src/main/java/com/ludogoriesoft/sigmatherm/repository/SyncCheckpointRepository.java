@@ -0,0 +1,20 @@
+package com.ludogoriesoft.sigmatherm.repository;
+
+import com.ludogoriesoft.sigmatherm.model.SyncCheckpoint;
+import com.ludogoriesoft.sigmatherm.model.enums.Platform;
+import com.ludogoriesoft.sigmatherm.model.enums.SyncOperation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface SyncCheckpointRepository extends JpaRepository<SyncCheckpoint, UUID> {
+
+    Optional<SyncCheckpoint> findByPlatformAndOperationAndWindowKey(Platform platform, SyncOperation operation,
+                                                                    String windowKey);
+
+    List<SyncCheckpoint> findAllByOrderByUpdatedAtDesc();
+}
@@ -0,0 +1,30 @@
+package com.ludogoriesoft.sigmatherm.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+@Repository
+@RequiredArgsConstructor
+public class WebhookEventLogJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Record the event unless it is recorded already; the unique index settles concurrent deliveries
+     * @return true if this call recorded it
+     */
+    public boolean claim(String orderId, String eventType) {
+        return jdbcTemplate.update(
+                "INSERT INTO webhook_event_log (order_id, event_type, received_at) VALUES (?, ?, ?) " +
+                        "ON CONFLICT (order_id, event_type) DO NOTHING",
+                orderId, eventType, Timestamp.valueOf(LocalDateTime.now())) > 0;
+    }
+
+    public int deleteReceivedBefore(LocalDateTime before) {
+        return jdbcTemplate.update("DELETE FROM webhook_event_log WHERE received_at < ?", Timestamp.valueOf(before));
+    }
+}
@@ -0,0 +1,135 @@
+package com.ludogoriesoft.sigmatherm.service;
+
+import com.ludogoriesoft.sigmatherm.helper.LongHashSet;
+import com.ludogoriesoft.sigmatherm.model.Synchronization;
+import com.ludogoriesoft.sigmatherm.model.enums.Platform;
+import com.ludogoriesoft.sigmatherm.repository.AppliedOperationJdbcRepository;
+import com.ludogoriesoft.sigmatherm.service.connector.StockDelta;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ledger of applied source operations, so overlapping or repeated sync ranges apply every
+ * operation once. Ids committed within the retention window are also kept in an in-memory
+ * set per platform; a hit there skips the operation without touching the database, and
+ * anything else is settled by the ledger insert itself.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AppliedOperationService {
+
+    @Value("${applied-operations.retention-days:90}")
+    private int retentionDays;
+
+    private final AppliedOperationJdbcRepository appliedOperationJdbcRepository;
+    private final ProductService productService;
+
+    private final Map<Platform, LongHashSet> appliedIds = new ConcurrentHashMap<>();
+
+    public boolean isApplied(Platform platform, long operationId) {
+        LongHashSet ids = appliedIdsOf(platform);
+        synchronized (ids) {
+            return ids.contains(operationId);
+        }
+    }
+
+    /**
+     * Claim the keyed operations in the ledger and apply the stock deltas of those claimed
+     * for the first time, plus the deltas without an operation id, in one transaction
+     */
+    @Transactional
+    public ApplyResult applyOnce(Platform platform, Map<Long, List<StockDelta>> keyed,
+                                 Map<String, Integer> unkeyed, Synchronization synchronization) {
+        List<Long> claimed = keyed.isEmpty()
+                ? List.of()
+                : appliedOperationJdbcRepository.claim(platform, new ArrayList<>(keyed.keySet()));
+
+        // Sorted so concurrent runs lock product rows in the same order
+        Map<String, Integer> deltas = new TreeMap<>(unkeyed);
+        int claimedMovements = 0;
+        for (Long operationId : claimed) {
+            for (StockDelta delta : keyed.get(operationId)) {
+                deltas.merge(delta.productId(), delta.quantity(), Integer::sum);
+                claimedMovements++;
+            }
+        }
+        int keyedMovements = keyed.values().stream().mapToInt(List::size).sum();
+
+        int updated = productService.applyStockDeltas(deltas, synchronization);
+        rememberAfterCommit(platform, claimed);
+
+        return new ApplyResult(deltas.size(), updated, keyed.size() - claimed.size(),
+                keyedMovements - claimedMovements);
+    }
+
+    @Scheduled(cron = "${applied-operations.cleanup-cron:0 30 3 * * *}")
+    public void deleteExpired() {
+        int deleted = appliedOperationJdbcRepository.deleteAppliedBefore(retentionStart());
+        if (deleted > 0) {
+            // Reloaded on next use without the expired ids
+            appliedIds.clear();
+            log.info("Deleted {} applied operation ids older than {} days", deleted, retentionDays);
+        }
+    }
+
+    private void rememberAfterCommit(Platform platform, List<Long> claimed) {
+        if (claimed.isEmpty()) {
+            return;
+        }
+        Runnable remember = () -> {
+            LongHashSet ids = appliedIdsOf(platform);
+            synchronized (ids) {
+                claimed.forEach(ids::add);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // A rolled back claim must stay unknown, so the ids are only cached once committed
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remember.run();
+                }
+            });
+        } else {
+            remember.run();
+        }
+    }
+
+    private LongHashSet appliedIdsOf(Platform platform) {
+        return appliedIds.computeIfAbsent(platform, key -> {
+            LocalDateTime since = retentionStart();
+            long count = appliedOperationJdbcRepository.countAppliedSince(key, since);
+            LongHashSet ids = new LongHashSet((int) Math.min(Integer.MAX_VALUE / 2, count + 1024));
+            appliedOperationJdbcRepository.forEachAppliedSince(key, since, ids::add);
+            log.info("Loaded {} applied {} operation ids", ids.size(), key);
+            return ids;
+        });
+    }
+
+    private LocalDateTime retentionStart() {
+        return LocalDateTime.now().minusDays(retentionDays);
+    }
+
+    /**
+     * @param products           distinct products with a stock change
+     * @param updatedProducts    of those, the ones that exist
+     * @param duplicates         operations skipped because the ledger already had them
+     * @param duplicateMovements stock movements of the skipped operations
+     */
+    public record ApplyResult(int products, int updatedProducts, int duplicates, int duplicateMovements) {
+    }
+}
@@ -0,0 +1,203 @@
+package com.ludogoriesoft.sigmatherm.service;
+
+import com.ludogoriesoft.sigmatherm.helper.CsvLineParser;
+import com.ludogoriesoft.sigmatherm.model.BolOffer;
+import com.ludogoriesoft.sigmatherm.repository.BolOfferJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the product reference -> BOL offerId mapping persisted in bol_offers
+ * and mirrored in memory, so outbound pushes never need a per-product lookup.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BolOfferService {
+
+    private static final int IMPORT_BATCH_SIZE = 1000;
+
+    private final BolOfferJdbcRepository bolOfferJdbcRepository;
+    private final Map<String, String> offerIdByReference = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadMappings() {
+        offerIdByReference.clear();
+        bolOfferJdbcRepository.forEachMapping(offerIdByReference::put);
+        log.info("Loaded {} BOL offer mappings", offerIdByReference.size());
+    }
+
+    public String resolveOfferId(String reference) {
+        return reference != null ? offerIdByReference.get(reference) : null;
+    }
+
+    /**
+     * Resolve offer ids for many references at once; unmapped references are left out
+     */
+    public Map<String, String> resolveOfferIds(Collection<String> references) {
+        Map<String, String> resolved = new HashMap<>();
+        for (String reference : references) {
+            String offerId = resolveOfferId(reference);
+            if (offerId != null) {
+                resolved.put(reference, offerId);
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Record a mapping seen in a shipment or order payload. Writes only when it is new or changed.
+     */
+    public void remember(String reference, String offerId, String ean) {
+        if (reference == null || offerId == null) {
+            return;
+        }
+        if (offerId.equals(offerIdByReference.get(reference))) {
+            return;
+        }
+        bolOfferJdbcRepository.upsertAll(List.of(BolOffer.builder()
+                .offerId(offerId)
+                .reference(reference)
+                .ean(ean)
+                .build()));
+        rememberAfterCommit(reference, offerId);
+        log.info("Stored BOL offer mapping {} -> {}", reference, offerId);
+    }
+
+    private void rememberAfterCommit(String reference, String offerId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // A rolled back mapping must not stay in memory, so it is mirrored only once committed
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    offerIdByReference.put(reference, offerId);
+                }
+            });
+        } else {
+            offerIdByReference.put(reference, offerId);
+        }
+    }
+
+    /**
+     * Import the BOL offer export CSV line by line, upserting mappings in batches
+     * @return number of mappings imported
+     */
+    public int importOfferExport(BufferedReader reader) throws IOException {
+        List<BolOffer> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        int[] imported = {0};
+
+        int skipped = forEachExportRow(reader, (offerId, reference, ean, stockAmount) -> {
+            batch.add(BolOffer.builder()
+                    .offerId(offerId)
+                    .reference(reference)
+                    .ean(ean)
+                    .build());
+
+            if (batch.size() == IMPORT_BATCH_SIZE) {
+                imported[0] += flush(batch);
+            }
+        });
+        imported[0] += flush(batch);
+
+        log.info("Imported {} BOL offer mappings from export ({} rows without reference skipped)", imported[0], skipped);
+        return imported[0];
+    }
+
+    /**
+     * Parse the BOL offer export CSV one line at a time
+     * @return number of rows skipped because they have no offer id or reference
+     */
+    public int forEachExportRow(BufferedReader reader, ExportRowConsumer consumer) throws IOException {
+        String header = reader.readLine();
+        if (header == null) {
+            log.warn("BOL offer export is empty");
+            return 0;
+        }
+
+        List<String> columns = CsvLineParser.split(stripBom(header));
+        int offerIdColumn = columns.indexOf("offerId");
+        int referenceColumn = columns.indexOf("referenceCode");
+        int eanColumn = columns.indexOf("ean");
+        int stockColumn = columns.indexOf("stockAmount");
+        if (offerIdColumn < 0 || referenceColumn < 0) {
+            throw new IllegalStateException("Unexpected BOL offer export header: " + header);
+        }
+
+        int skipped = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> fields = CsvLineParser.split(line);
+            String offerId = field(fields, offerIdColumn);
+            String reference = field(fields, referenceColumn);
+            if (offerId == null || reference == null) {
+                skipped++;
+                continue;
+            }
+            consumer.accept(offerId, reference, field(fields, eanColumn), parseStock(field(fields, stockColumn)));
+        }
+        return skipped;
+    }
+
+    public int getMappingCount() {
+        return offerIdByReference.size();
+    }
+
+    private int flush(List<BolOffer> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        bolOfferJdbcRepository.upsertAll(batch);
+        for (BolOffer offer : batch) {
+            offerIdByReference.put(offer.getReference(), offer.getOfferId());
+        }
+        int size = batch.size();
+        batch.clear();
+        return size;
+    }
+
+    private static String field(List<String> fields, int index) {
+        if (index < 0 || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Integer parseStock(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String stripBom(String header) {
+        return Objects.requireNonNull(header).startsWith("\uFEFF") ? header.substring(1) : header;
+    }
+
+    @FunctionalInterface
+    public interface ExportRowConsumer {
+        void accept(String offerId, String reference, String ean, Integer stockAmount);
+    }
+}
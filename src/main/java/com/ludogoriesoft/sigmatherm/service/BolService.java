@@ -1,31 +1,57 @@
 package com.ludogoriesoft.sigmatherm.service;
 
 import com.ludogoriesoft.sigmatherm.dto.bol.OrderResponse;
+import com.ludogoriesoft.sigmatherm.dto.bol.ProcessStatus;
+import com.ludogoriesoft.sigmatherm.dto.bol.ProcessStatusResponse;
 import com.ludogoriesoft.sigmatherm.dto.bol.ReturnsResponse;
 import com.ludogoriesoft.sigmatherm.dto.bol.ShipmentResponse;
 import com.ludogoriesoft.sigmatherm.dto.bol.StockUpdateRequest;
 import com.ludogoriesoft.sigmatherm.dto.bol.TokenResponse;
 import com.ludogoriesoft.sigmatherm.exception.ObjectNotFoundException;
+import com.ludogoriesoft.sigmatherm.helper.CoalescingQueue;
+import com.ludogoriesoft.sigmatherm.helper.RateLimiter;
 import com.ludogoriesoft.sigmatherm.model.Product;
+import com.ludogoriesoft.sigmatherm.model.SyncCheckpoint;
 import com.ludogoriesoft.sigmatherm.model.SyncLog;
 import com.ludogoriesoft.sigmatherm.model.Synchronization;
 import com.ludogoriesoft.sigmatherm.model.enums.Platform;
 import com.ludogoriesoft.sigmatherm.model.enums.SyncDirection;
 import com.ludogoriesoft.sigmatherm.model.enums.SyncOperation;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 @Slf4j
 @Service
@@ -38,12 +64,49 @@ public class BolService {
     @Value("${bol.client.secret}")
     private String clientSecret;
 
+    @Value("${bol.rate-limit.requests-per-second:10}")
+    private double requestsPerSecond;
+
+    @Value("${bol.stock-push.concurrency:4}")
+    private int pushConcurrency;
+
+    @Value("${bol.stock-push.max-retries:5}")
+    private int pushMaxRetries;
+
+    @Value("${bol.process-status.batch-size:100}")
+    private int statusBatchSize;
+
+    @Value("${bol.process-status.poll-interval-ms:2000}")
+    private long statusPollIntervalMs;
+
+    @Value("${bol.process-status.max-polls:15}")
+    private int statusMaxPolls;
+
+    @Value("${bol.offer-export.poll-interval-ms:10000}")
+    private long exportPollIntervalMs;
+
+    @Value("${bol.offer-export.max-wait-ms:900000}")
+    private long exportMaxWaitMs;
+
     private final ProductService productService;
+    private final BolOfferService bolOfferService;
     private final SynchronizationService synchronizationService;
     private final SyncLogService syncLogService;
+    private final SyncCheckpointService syncCheckpointService;
     private final WebClient webClient = WebClient.create("https://api.bol.com");
+    private final CoalescingQueue<String, Integer> stockPushQueue = new CoalescingQueue<>();
+    // Consecutive failed pushes per offer, so an offer BOL keeps refusing is eventually dropped
+    private final Map<String, Integer> pushRetries = new ConcurrentHashMap<>();
+    private RateLimiter rateLimiter;
 
     private static final String ACCEPT_HEADER = "application/vnd.retailer.v10+json";
+    private static final String CSV_ACCEPT_HEADER = "application/vnd.retailer.v10+csv";
+    private static final int MAX_REPORTED_FAILURES = 50;
+
+    @PostConstruct
+    void initRateLimiter() {
+        rateLimiter = new RateLimiter(requestsPerSecond);
+    }
 
     public void processStockUpdateToBol(String offerId, int stock) {
         boolean success = false;
@@ -51,7 +114,10 @@ public class BolService {
 
         try {
             String token = getAccessToken();
-            updateSingleStockToBol(token, offerId, stock);
+            rateLimiter.acquire();
+            ProcessStatus status = updateSingleStockToBol(token, offerId, stock).block();
+            log.info("Stock update for offer {} accepted by BOL with process status {}",
+                    offerId, status != null ? status.getProcessStatusId() : null);
             success = true;
         } catch (Exception e) {
             errorMessage = e.getMessage();
@@ -69,6 +135,307 @@ public class BolService {
         );
     }
 
+    /**
+     * Queue a stock push for an offer. Only the latest value per offer is kept until the next flush.
+     * Inside a transaction the push is queued once it commits, so a rolled back stock change
+     * never reaches BOL.
+     */
+    public void enqueueStockUpdate(String offerId, int stock) {
+        if (offerId == null) {
+            log.warn("Skipping BOL stock push without offer id (stock {})", stock);
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    queueStockPush(offerId, stock);
+                }
+            });
+        } else {
+            queueStockPush(offerId, stock);
+        }
+    }
+
+    private void queueStockPush(String offerId, int stock) {
+        pushRetries.remove(offerId);
+        if (stockPushQueue.offer(offerId, stock)) {
+            log.debug("Coalesced pending BOL stock push for offer {} to {}", offerId, stock);
+        }
+    }
+
+    /**
+     * Push every coalesced offer stock concurrently under the BOL rate limit and
+     * wait for the asynchronous process statuses so the final state lands in the sync log.
+     * Offers that were not accepted or whose process failed are queued again, up to
+     * bol.stock-push.max-retries times in a row.
+     */
+    @Scheduled(fixedDelayString = "${bol.stock-push.flush-interval-ms:10000}")
+    public void flushStockPushQueue() {
+        Map<String, Integer> batch = stockPushQueue.drain();
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        String batchId = "bol-stock-push-" + System.currentTimeMillis();
+        SyncLog syncLog = syncLogService.startSync(
+                Platform.Bol,
+                SyncDirection.OUTBOUND,
+                SyncOperation.STOCK_UPDATE,
+                null,
+                batchId
+        );
+
+        Map<String, String> failures = new ConcurrentHashMap<>();
+        Map<String, ProcessStatus> statusesByOffer = new LinkedHashMap<>();
+
+        try {
+            String accessToken = obtainAccessToken();
+            log.info("Pushing {} coalesced stock updates to BOL", batch.size());
+
+            statusesByOffer.putAll(pushStockConcurrently(accessToken, batch, failures));
+            pollProcessStatuses(accessToken, statusesByOffer);
+
+            // Offers without a status were never accepted by BOL
+            Map<String, Integer> retry = new LinkedHashMap<>();
+            failures.keySet().forEach(offerId -> retry.put(offerId, batch.get(offerId)));
+
+            int successful = 0;
+            for (Map.Entry<String, ProcessStatus> entry : statusesByOffer.entrySet()) {
+                ProcessStatus status = entry.getValue();
+                if (status.isSuccess()) {
+                    successful++;
+                    pushRetries.remove(entry.getKey());
+                } else if (status.isPending()) {
+                    failures.put(entry.getKey(), "Still pending after " + statusMaxPolls
+                            + " polls (process " + status.getProcessStatusId() + ")");
+                } else {
+                    failures.put(entry.getKey(), status.getStatus() + ": " + status.getErrorMessage());
+                    retry.put(entry.getKey(), batch.get(entry.getKey()));
+                }
+            }
+            int requeued = requeueStockPushes(retry);
+
+            syncLogService.completeSync(syncLog.getId(), batch.size(), successful, failures.size(),
+                    describeStockPush(batch, successful, failures)
+                            + (requeued > 0 ? String.format(" (%d re-queued)", requeued) : ""));
+
+        } catch (Exception e) {
+            // Offers BOL already accepted are not pushed again
+            Map<String, Integer> notPushed = new LinkedHashMap<>(batch);
+            notPushed.keySet().removeAll(statusesByOffer.keySet());
+            int requeued = requeueStockPushes(notPushed);
+            syncLogService.failSync(syncLog.getId(), e.getMessage(), batch.size(),
+                    statusesByOffer.size(), notPushed.size());
+            log.error("Failed to flush BOL stock push queue, {} offers re-queued", requeued, e);
+        }
+    }
+
+    /**
+     * Queue failed pushes again unless a newer value arrived meanwhile
+     * @return number of offers queued again
+     */
+    private int requeueStockPushes(Map<String, Integer> failed) {
+        int requeued = 0;
+        for (Map.Entry<String, Integer> entry : failed.entrySet()) {
+            int retries = pushRetries.merge(entry.getKey(), 1, Integer::sum);
+            if (retries > pushMaxRetries) {
+                pushRetries.remove(entry.getKey());
+                log.error("Giving up BOL stock push for offer {} (stock {}) after {} retries",
+                        entry.getKey(), entry.getValue(), pushMaxRetries);
+                continue;
+            }
+            stockPushQueue.offerIfAbsent(entry.getKey(), entry.getValue());
+            requeued++;
+        }
+        return requeued;
+    }
+
+    private Map<String, ProcessStatus> pushStockConcurrently(String accessToken, Map<String, Integer> batch,
+                                                             Map<String, String> failures) {
+        Map<String, ProcessStatus> statuses = Flux.fromIterable(batch.entrySet())
+                .flatMap(entry -> Mono.fromRunnable(rateLimiter::acquire)
+                                .subscribeOn(Schedulers.boundedElastic())
+                                .then(updateSingleStockToBol(accessToken, entry.getKey(), entry.getValue()))
+                                .map(status -> Map.entry(entry.getKey(), status))
+                                .onErrorResume(e -> {
+                                    failures.put(entry.getKey(), String.valueOf(e.getMessage()));
+                                    return Mono.empty();
+                                }),
+                        pushConcurrency)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue, LinkedHashMap::new)
+                .block();
+        return statuses != null ? statuses : new LinkedHashMap<>();
+    }
+
+    private void pollProcessStatuses(String accessToken, Map<String, ProcessStatus> statusesByOffer)
+            throws InterruptedException {
+        for (int poll = 0; poll < statusMaxPolls; poll++) {
+            Map<String, String> pendingOfferByProcessId = new HashMap<>();
+            statusesByOffer.forEach((offerId, status) -> {
+                if (status.isPending() && status.getProcessStatusId() != null) {
+                    pendingOfferByProcessId.put(status.getProcessStatusId(), offerId);
+                }
+            });
+
+            if (pendingOfferByProcessId.isEmpty()) {
+                return;
+            }
+
+            Thread.sleep(statusPollIntervalMs);
+
+            List<String> processIds = new ArrayList<>(pendingOfferByProcessId.keySet());
+            for (int from = 0; from < processIds.size(); from += statusBatchSize) {
+                List<String> chunk = processIds.subList(from, Math.min(from + statusBatchSize, processIds.size()));
+                try {
+                    rateLimiter.acquire();
+                    ProcessStatusResponse response = fetchProcessStatuses(accessToken, chunk).block();
+                    if (response == null || response.getProcessStatuses() == null) {
+                        continue;
+                    }
+                    for (ProcessStatus status : response.getProcessStatuses()) {
+                        String offerId = pendingOfferByProcessId.get(status.getProcessStatusId());
+                        if (offerId != null) {
+                            statusesByOffer.put(offerId, status);
+                        }
+                    }
+                } catch (Exception e) {
+                    log.warn("Failed to poll {} BOL process statuses: {}", chunk.size(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static String describeStockPush(Map<String, Integer> batch, int successful, Map<String, String> failures) {
+        StringBuilder details = new StringBuilder(String.format(
+                "Pushed %d coalesced offer stocks to BOL: %d succeeded, %d failed", batch.size(), successful, failures.size()));
+        int reported = 0;
+        for (Map.Entry<String, String> failure : failures.entrySet()) {
+            if (reported++ == MAX_REPORTED_FAILURES) {
+                details.append("; ...");
+                break;
+            }
+            details.append("; ").append(failure.getKey())
+                    .append(" (stock ").append(batch.get(failure.getKey())).append("): ")
+                    .append(failure.getValue());
+        }
+        return details.toString();
+    }
+
+    /**
+     * Request the BOL offer export, wait for it to be generated and stream the CSV
+     * into the offer mapping table without buffering the whole file
+     */
+    public int importOfferExport() {
+        String batchId = "bol-offer-export-" + System.currentTimeMillis();
+        SyncLog syncLog = syncLogService.startSync(
+                Platform.Bol,
+                SyncDirection.INBOUND,
+                SyncOperation.PRODUCT_IMPORT,
+                null,
+                batchId
+        );
+
+        try {
+            String accessToken = obtainAccessToken();
+            ProcessStatus exportStatus = requestOfferExport(accessToken).block();
+
+            int[] imported = {0};
+            String reportId = readOfferExport(accessToken, exportStatus,
+                    reader -> imported[0] = bolOfferService.importOfferExport(reader));
+
+            syncLogService.completeSync(syncLog.getId(), imported[0], imported[0], 0,
+                    String.format("Imported %d BOL offer mappings from export %s", imported[0], reportId));
+            return imported[0];
+
+        } catch (Exception e) {
+            syncLogService.failSync(syncLog.getId(), e.getMessage(), 0, 0, 0);
+            log.error("Failed to import BOL offer export", e);
+            throw new RuntimeException("Failed to import BOL offer export", e);
+        }
+    }
+
+    /**
+     * Request a fresh offer export and hand its CSV to the reader as a stream
+     */
+    public void readOfferExport(OfferExportReader exportReader) throws Exception {
+        String accessToken = obtainAccessToken();
+        readOfferExport(accessToken, requestOfferExport(accessToken).block(), exportReader);
+    }
+
+    private String readOfferExport(String accessToken, ProcessStatus exportStatus, OfferExportReader exportReader)
+            throws Exception {
+        if (exportStatus == null) {
+            throw new IllegalStateException("BOL did not accept the offer export request");
+        }
+
+        String reportId = awaitProcessEntity(accessToken, exportStatus);
+        log.info("BOL offer export {} is ready, streaming CSV", reportId);
+
+        Flux<DataBuffer> csv = webClient.get()
+                .uri("/retailer/offers/export/{reportId}", reportId)
+                .headers(header -> {
+                    header.setBearerAuth(accessToken);
+                    header.set(HttpHeaders.ACCEPT, CSV_ACCEPT_HEADER);
+                })
+                .retrieve()
+                .bodyToFlux(DataBuffer.class);
+
+        try (InputStream in = DataBufferUtils.subscriberInputStream(csv, 16);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            exportReader.read(reader);
+        }
+        return reportId;
+    }
+
+    @FunctionalInterface
+    public interface OfferExportReader {
+        void read(BufferedReader reader) throws IOException;
+    }
+
+    private String awaitProcessEntity(String accessToken, ProcessStatus status) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + exportMaxWaitMs;
+        ProcessStatus current = status;
+
+        while (current.isPending()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("BOL process " + current.getProcessStatusId() + " is still pending");
+            }
+            Thread.sleep(exportPollIntervalMs);
+            rateLimiter.acquire();
+            ProcessStatusResponse response = fetchProcessStatuses(accessToken, List.of(current.getProcessStatusId())).block();
+            if (response != null && response.getProcessStatuses() != null && !response.getProcessStatuses().isEmpty()) {
+                current = response.getProcessStatuses().get(0);
+            }
+        }
+
+        if (!current.isSuccess()) {
+            throw new IllegalStateException("BOL process " + current.getProcessStatusId() + " ended with "
+                    + current.getStatus() + ": " + current.getErrorMessage());
+        }
+        return current.getEntityId();
+    }
+
+    private Mono<ProcessStatus> requestOfferExport(String accessToken) {
+        return webClient.post()
+                .uri("/retailer/offers/export")
+                .headers(header -> {
+                    header.setBearerAuth(accessToken);
+                    header.set(HttpHeaders.ACCEPT, ACCEPT_HEADER);
+                })
+                .contentType(MediaType.parseMediaType(ACCEPT_HEADER))
+                .bodyValue(Map.of("format", "CSV"))
+                .retrieve()
+                .onStatus(
+                        status -> !status.is2xxSuccessful(),
+                        response -> response.bodyToMono(String.class)
+                                .defaultIfEmpty("")
+                                .flatMap(body -> Mono.error(new RuntimeException(
+                                        "Failed to request offer export: " + response.statusCode() + " - " + body)))
+                )
+                .bodyToMono(ProcessStatus.class);
+    }
+
     public List<ShipmentResponse.Shipment> processShipments() {
         String batchId = "bol-shipments-" + System.currentTimeMillis();
         Synchronization synchronization = synchronizationService.createSync(Platform.Bol);
@@ -103,50 +470,51 @@ public class BolService {
                 return response.getShipments(); // Only for testing
             }
 
-            for (ShipmentResponse.Shipment shipment : todayShipments) {
+            // Shipments are committed one by one together with a cursor, so an interrupted run of the same
+            // day continues after the last applied shipment. A completed day is not applied again until
+            // its checkpoint is reset, because shipments carry no ledger of their own.
+            SyncCheckpoint checkpoint = syncCheckpointService.openOnce(Platform.Bol, SyncOperation.ORDERS, checkpointWindowKey());
+            if (checkpoint.isCompleted()) {
+                syncLogService.completeSync(syncLog.getId(), 0, 0, 0,
+                        "Shipments of " + checkpoint.getWindowKey() + " were already applied");
+                return response.getShipments();
+            }
+            int start = resumePosition(checkpoint, todayShipments, ShipmentResponse.Shipment::getShipmentId);
+
+            for (int position = start; position < todayShipments.size(); position++) {
+                ShipmentResponse.Shipment shipment = todayShipments.get(position);
+                ShipmentResponse.Shipment currentShipment;
                 try {
                     Thread.sleep(1200);
-                    ShipmentResponse.Shipment currentShipment = fetchShipmentById(accessToken, shipment.getShipmentId()).block();
-
-                    if (currentShipment == null || currentShipment.getShipmentItems() == null || currentShipment.getShipmentItems().isEmpty()) {
-                        log.info("No shipment items in shipment {}", shipment.getShipmentId());
-                        failedItems++;
-                        continue;
-                    }
-
-                    for (ShipmentResponse.ShipmentItem item : currentShipment.getShipmentItems()) {
-                        processedItems++;
-                        try {
-                            log.info("Item reference: {}", item.getOffer().getReference());
-                            log.info("Item offer id: {}", item.getOffer().getOfferId());
-
-                            reduceAvailabilityOfShippedItems(shipment, item.getOffer().getReference(), item.getQuantity(), synchronization);
-                            Product product = productService.findProductById(item.getOffer().getReference());
-                            updateSingleStockToBol(accessToken, item.getOffer().getOfferId(), product.getStock());
-
-                            successfulItems++;
-
-                            // Update progress periodically
-                            if (processedItems % 10 == 0) {
-                                syncLogService.updateProgress(syncLog.getId(), processedItems, successfulItems, failedItems,
-                                        String.format("Processed %d/%d shipment items", processedItems, todayShipments.size()));
-                            }
-
-                        } catch (Exception e) {
-                            failedItems++;
-                            log.error("Error processing shipment item {}", item.getOffer().getReference(), e);
-                        }
-                    }
+                    currentShipment = fetchShipmentById(accessToken, shipment.getShipmentId()).block();
+                } catch (Exception e) {
+                    failedItems++;
+                    throw new IllegalStateException(String.format("Stopped at shipment %d/%d (%s), the next run resumes from there",
+                            position + 1, todayShipments.size(), shipment.getShipmentId()), e);
+                }
 
+                // A failed stock write rolls the shipment back with its checkpoint, so the run stops here
+                int[] counts;
+                try {
+                    counts = syncCheckpointService.commitPage(checkpoint, position + 1, shipment.getShipmentId(),
+                            () -> processShipmentItems(shipment, currentShipment, synchronization));
                 } catch (Exception e) {
-                    Thread.currentThread().interrupt();
                     failedItems++;
-                    log.error("Error processing shipment {}", shipment.getShipmentId(), e);
+                    throw new IllegalStateException(String.format("Stopped at shipment %d/%d (%s), the next run resumes from there",
+                            position + 1, todayShipments.size(), shipment.getShipmentId()), e);
                 }
+                processedItems += counts[0];
+                successfulItems += counts[1];
+                failedItems += counts[2];
+
+                syncLogService.updateProgress(syncLog.getId(), processedItems, successfulItems, failedItems,
+                        String.format("Processed %d/%d shipments (%d items)", position + 1, todayShipments.size(), processedItems));
             }
+            syncCheckpointService.complete(checkpoint);
 
             syncLogService.completeSync(syncLog.getId(), processedItems, successfulItems, failedItems,
-                    String.format("Processed %d shipments with %d items total", todayShipments.size(), processedItems));
+                    String.format("Processed %d shipments with %d items total%s", todayShipments.size() - start, processedItems,
+                            start > 0 ? ", resumed after shipment " + start : ""));
 
             log.info(synchronization.getPlatform() + " synchronized successfully!");
             return response.getShipments();
@@ -192,18 +560,27 @@ public class BolService {
                 return response.getReturns(); // Only for testing
             }
 
-            for (ReturnsResponse.Return currentReturn : todayReturns) {
-                try {
-                    Thread.sleep(1200);
-                    if (currentReturn.getReturnItems() == null || currentReturn.getReturnItems().isEmpty()) {
-                        log.info("No items found in return {}", currentReturn.getReturnId());
-                        failedItems++;
-                        continue;
-                    }
+            SyncCheckpoint checkpoint = syncCheckpointService.openOnce(Platform.Bol, SyncOperation.RETURNS, checkpointWindowKey());
+            if (checkpoint.isCompleted()) {
+                syncLogService.completeSync(syncLog.getId(), 0, 0, 0,
+                        "Returns of " + checkpoint.getWindowKey() + " were already applied");
+                return response.getReturns();
+            }
+            int start = resumePosition(checkpoint, todayReturns, ReturnsResponse.Return::getReturnId);
+
+            for (int position = start; position < todayReturns.size(); position++) {
+                ReturnsResponse.Return currentReturn = todayReturns.get(position);
+                List<ReturnedItem> receivedItems = new ArrayList<>();
 
-                    for (ReturnsResponse.ReturnItem returnItem : currentReturn.getReturnItems()) {
-                        processedItems++;
-                        try {
+                if (currentReturn.getReturnItems() == null || currentReturn.getReturnItems().isEmpty()) {
+                    log.info("No items found in return {}", currentReturn.getReturnId());
+                    failedItems++;
+                } else {
+                    // Orders are fetched before the transaction so no connection is held during HTTP calls
+                    try {
+                        Thread.sleep(1200);
+                        for (ReturnsResponse.ReturnItem returnItem : currentReturn.getReturnItems()) {
+                            processedItems++;
                             OrderResponse order = fetchOrderById(accessToken, returnItem.getOrderId()).block();
                             if (order == null || order.getOrderItems() == null || order.getOrderItems().isEmpty()) {
                                 log.info("No orders found in return {}", currentReturn.getReturnId());
@@ -217,30 +594,37 @@ public class BolService {
                                 failedItems++;
                                 continue;
                             }
-
-                            reduceAvailabilityOfReturnedItem(currentReturn, returnItem, order, accessToken, synchronization);
-                            successfulItems++;
-
-                            // Update progress periodically
-                            if (processedItems % 10 == 0) {
-                                syncLogService.updateProgress(syncLog.getId(), processedItems, successfulItems, failedItems,
-                                        String.format("Processed %d/%d return items", processedItems, todayReturns.size()));
-                            }
-
-                        } catch (Exception e) {
-                            failedItems++;
-                            log.error("Error processing return item", e);
+                            receivedItems.add(new ReturnedItem(returnItem, order));
                         }
+                    } catch (Exception e) {
+                        failedItems++;
+                        throw new IllegalStateException(String.format("Stopped at return %d/%d (%s), the next run resumes from there",
+                                position + 1, todayReturns.size(), currentReturn.getReturnId()), e);
                     }
+                }
+
+                try {
+                    syncCheckpointService.commitPage(checkpoint, position + 1, currentReturn.getReturnId(), () -> {
+                        for (ReturnedItem item : receivedItems) {
+                            reduceAvailabilityOfReturnedItem(item.returnItem(), item.order(), synchronization);
+                        }
+                        return receivedItems.size();
+                    });
                 } catch (Exception e) {
-                    Thread.currentThread().interrupt();
-                    failedItems++;
-                    log.error("Error processing return {}", currentReturn.getReturnId(), e);
+                    failedItems += receivedItems.size();
+                    throw new IllegalStateException(String.format("Stopped at return %d/%d (%s), the next run resumes from there",
+                            position + 1, todayReturns.size(), currentReturn.getReturnId()), e);
                 }
+                successfulItems += receivedItems.size();
+
+                syncLogService.updateProgress(syncLog.getId(), processedItems, successfulItems, failedItems,
+                        String.format("Processed %d/%d returns (%d items)", position + 1, todayReturns.size(), processedItems));
             }
+            syncCheckpointService.complete(checkpoint);
 
             syncLogService.completeSync(syncLog.getId(), processedItems, successfulItems, failedItems,
-                    String.format("Processed %d returns with %d items total", todayReturns.size(), processedItems));
+                    String.format("Processed %d returns with %d items total%s", todayReturns.size() - start, processedItems,
+                            start > 0 ? ", resumed after return " + start : ""));
 
             log.info(synchronization.getPlatform() + " synchronized successfully!");
             return response.getReturns();
@@ -261,8 +645,8 @@ public class BolService {
         return accessToken;
     }
 
-    private void updateSingleStockToBol(String token, String offerId, int stock) {
-        webClient.put()
+    private Mono<ProcessStatus> updateSingleStockToBol(String token, String offerId, int stock) {
+        return webClient.put()
                 .uri("/retailer/offers/{offerId}/stock", offerId)
                 .headers(header -> {
                     header.setBearerAuth(token);
@@ -282,7 +666,31 @@ public class BolService {
                                             "Stock update failed for offer " + offerId + ": " + body));
                                 })
                 )
-                .bodyToMono(Void.class);
+                .bodyToMono(ProcessStatus.class);
+    }
+
+    private Mono<ProcessStatusResponse> fetchProcessStatuses(String accessToken, List<String> processStatusIds) {
+        List<ProcessStatusResponse.Query> queries = processStatusIds.stream()
+                .map(ProcessStatusResponse.Query::new)
+                .toList();
+
+        return webClient.post()
+                .uri("/shared/process-status")
+                .headers(header -> {
+                    header.setBearerAuth(accessToken);
+                    header.set(HttpHeaders.ACCEPT, ACCEPT_HEADER);
+                })
+                .contentType(MediaType.parseMediaType(ACCEPT_HEADER))
+                .bodyValue(new ProcessStatusResponse.BulkRequest(queries))
+                .retrieve()
+                .onStatus(
+                        status -> !status.is2xxSuccessful(),
+                        response -> response.bodyToMono(String.class)
+                                .defaultIfEmpty("")
+                                .flatMap(body -> Mono.error(new RuntimeException(
+                                        "Failed to fetch process statuses: " + response.statusCode() + " - " + body)))
+                )
+                .bodyToMono(ProcessStatusResponse.class);
     }
 
     private Mono<OrderResponse> fetchOrderById(String accessToken, String orderId) {
@@ -371,6 +779,66 @@ public class BolService {
                 .bodyToMono(ReturnsResponse.class);
     }
 
+    private int[] processShipmentItems(ShipmentResponse.Shipment shipment, ShipmentResponse.Shipment currentShipment,
+                                       Synchronization synchronization) {
+        if (currentShipment == null || currentShipment.getShipmentItems() == null || currentShipment.getShipmentItems().isEmpty()) {
+            log.info("No shipment items in shipment {}", shipment.getShipmentId());
+            return new int[]{0, 0, 1};
+        }
+
+        int processed = 0;
+        int successful = 0;
+        int failed = 0;
+        // Exceptions propagate, so the shipment's stock changes roll back together with its checkpoint
+        for (ShipmentResponse.ShipmentItem item : currentShipment.getShipmentItems()) {
+            processed++;
+            log.info("Item reference: {}", item.getOffer().getReference());
+            log.info("Item offer id: {}", item.getOffer().getOfferId());
+            bolOfferService.remember(item.getOffer().getReference(), item.getOffer().getOfferId(), item.getEan());
+
+            reduceAvailabilityOfShippedItems(item.getOffer().getReference(), item.getQuantity(), synchronization);
+            Product product = productService.findProductById(item.getOffer().getReference());
+            if (product == null) {
+                log.warn("No product {} for shipment item in shipment {}", item.getOffer().getReference(), shipment.getShipmentId());
+                failed++;
+                continue;
+            }
+            enqueueStockUpdate(item.getOffer().getOfferId(), product.getStock());
+            successful++;
+        }
+        return new int[]{processed, successful, failed};
+    }
+
+    /**
+     * Shipments and returns are filtered to yesterday, so that day is the checkpoint window
+     */
+    private static String checkpointWindowKey() {
+        return LocalDate.now(ZoneId.of("Europe/Sofia")).minusDays(1).toString();
+    }
+
+    /**
+     * Position to continue from: right after the checkpoint's cursor, or 0 for a fresh window
+     */
+    private static <T> int resumePosition(SyncCheckpoint checkpoint, List<T> records, Function<T, String> idOf) {
+        if (checkpoint.getCursor() == null) {
+            return 0;
+        }
+        for (int i = 0; i < records.size(); i++) {
+            if (checkpoint.getCursor().equals(idOf.apply(records.get(i)))) {
+                log.info("Resuming {} {} after {} ({}/{})", checkpoint.getPlatform(), checkpoint.getOperation(),
+                        checkpoint.getCursor(), i + 1, records.size());
+                return i + 1;
+            }
+        }
+        // Starting over would apply the records before the cursor a second time
+        throw new IllegalStateException(String.format(
+                "Checkpoint cursor %s is no longer in the %s %s list, reset the checkpoint to run the window again",
+                checkpoint.getCursor(), checkpoint.getPlatform(), checkpoint.getOperation()));
+    }
+
+    private record ReturnedItem(ReturnsResponse.ReturnItem returnItem, OrderResponse order) {
+    }
+
     private static List<ShipmentResponse.Shipment> getTodayShipments(ShipmentResponse response) {
         ZoneId zone = ZoneId.of("Europe/Sofia");
         OffsetDateTime startOfToday = OffsetDateTime.now(zone).minusDays(1)
@@ -380,11 +848,14 @@ public class BolService {
 
         OffsetDateTime startOfTomorrow = startOfToday.plusDays(1);
 
+        // Sorted so the checkpoint cursor refers to a stable position between runs
         return response.getShipments().stream()
                 .filter(shipment -> {
                     OffsetDateTime shipmentDate = OffsetDateTime.parse(shipment.getShipmentDateTime().toString());
                     return !shipmentDate.isBefore(startOfToday) && shipmentDate.isBefore(startOfTomorrow);
                 })
+                .sorted(Comparator.comparing(ShipmentResponse.Shipment::getShipmentDateTime)
+                        .thenComparing(ShipmentResponse.Shipment::getShipmentId))
                 .toList();
     }
 
@@ -402,31 +873,29 @@ public class BolService {
                     OffsetDateTime returnDate = OffsetDateTime.parse(r.getRegistrationDateTime().toString());
                     return !returnDate.isBefore(startOfToday) && returnDate.isBefore(startOfTomorrow);
                 })
+                .sorted(Comparator.comparing(ReturnsResponse.Return::getRegistrationDateTime)
+                        .thenComparing(ReturnsResponse.Return::getReturnId))
                 .toList();
     }
 
-    private void reduceAvailabilityOfShippedItems(ShipmentResponse.Shipment shipment, String productId, int quantity, Synchronization synchronization) {
-        try {
-            log.debug("Reducing availability for offer {} by {}", productId, quantity);
-            productService.reduceAvailabilityByOrder(productId, quantity);
-            productService.setSync(productId, synchronization);
-        } catch (Exception e) {
-            log.error("Error processing item {} in shipment {}", productId, shipment.getShipmentId(), e);
-        }
+    private void reduceAvailabilityOfShippedItems(String productId, int quantity, Synchronization synchronization) {
+        log.debug("Reducing availability for offer {} by {}", productId, quantity);
+        productService.reduceAvailabilityByOrder(productId, quantity);
+        productService.setSync(productId, synchronization);
     }
 
-    private void reduceAvailabilityOfReturnedItem(ReturnsResponse.Return currentReturn, ReturnsResponse.ReturnItem returnItem, OrderResponse order, String accessToken, Synchronization synchronization) {
+    private void reduceAvailabilityOfReturnedItem(ReturnsResponse.ReturnItem returnItem, OrderResponse order, Synchronization synchronization) {
         for (OrderResponse.OrderItem orderItem : order.getOrderItems()) {
+            bolOfferService.remember(orderItem.getOffer().getReference(), orderItem.getOffer().getOfferId(),
+                    orderItem.getProduct().getEan());
             if (orderItem.getProduct().getEan().equals(returnItem.getEan())) {
                 String productId = orderItem.getOffer().getReference();
-                try {
-                    log.debug("Reducing availability for offer {} by {}", productId, orderItem.getQuantity());
-                    productService.increaseAvailabilityByReturn(productId, orderItem.getQuantity());
-                    productService.setSync(productId, synchronization);
-                    Product product = productService.findProductById(productId);
-                    updateSingleStockToBol(accessToken, orderItem.getOffer().getOfferId(), product.getStock());
-                } catch (Exception e) {
-                    log.error("Error processing item {} in return {}", productId, currentReturn.getReturnId(), e);
+                log.debug("Reducing availability for offer {} by {}", productId, orderItem.getQuantity());
+                productService.increaseAvailabilityByReturn(productId, orderItem.getQuantity());
+                productService.setSync(productId, synchronization);
+                Product product = productService.findProductById(productId);
+                if (product != null) {
+                    enqueueStockUpdate(orderItem.getOffer().getOfferId(), product.getStock());
                 }
             }
         }
@@ -15,6 +15,7 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Service
@@ -23,7 +24,6 @@ public class CronJobService {
 
     private static final String ORDER_URL = "/api-3/order";
     private static final String RETURNED_ORDER_URL = "/api-3/rma/read";
-    private static final String FEED_PATH = "/app/feeds/skroutz_feed.xml";
 
     @Value("${emag.api.bg-url}")
     private String emagBgUrl;
@@ -34,13 +34,21 @@ public class CronJobService {
     @Value("${emag.api.hu-url}")
     private String emagHuUrl;
 
+    @Value("${reconciliation.auto-correct:false}")
+    private boolean reconciliationAutoCorrect;
+
+    @Value("${microinvest.store-reconciliation.apply:true}")
+    private boolean storeReconciliationApply;
+
     private final ProductService productService;
     private final SynchronizationService synchronizationService;
     private final SyncLogService syncLogService;
     private final EmagService emagService;
     private final SkroutzFeedService skroutzFeedService;
     private final BolService bolService;
+    private final BolOfferService bolOfferService;
     private final MicroinvestService microinvestService;
+    private final StockReconciliationService stockReconciliationService;
 
     @Scheduled(cron = "0 30 23 * * *")
     public void fetchEmagBgData() {
@@ -89,6 +97,27 @@ public class CronJobService {
         }
     }
 
+    @Scheduled(cron = "${bol.offer-export.cron:0 15 23 * * *}")
+    public void refreshBolOfferMappings() {
+        try {
+            bolService.importOfferExport();
+        } catch (Exception e) {
+            log.error("Failed to refresh BOL offer mappings, keeping {} known mappings",
+                    bolOfferService.getMappingCount(), e);
+        }
+    }
+
+    @Scheduled(cron = "${reconciliation.cron:0 55 23 * * *}")
+    public void reconcileChannelStock() {
+        for (Platform platform : StockReconciliationService.SUPPORTED_PLATFORMS) {
+            try {
+                stockReconciliationService.reconcile(platform, reconciliationAutoCorrect);
+            } catch (Exception e) {
+                log.error("Stock reconciliation failed for {}", platform, e);
+            }
+        }
+    }
+
     @Scheduled(cron = "0 36 23 * * *")
     public void fetchMicroinvestData() {
         LocalDate today = LocalDate.now();
@@ -117,6 +146,13 @@ public class CronJobService {
             syncLogService.failSync(returnsLog.getId(), e.getMessage(), 0, 0, 0);
             log.error("Failed to process Microinvest returns", e);
         }
+
+        // Full stock resync against the store; logs its own drift report
+        try {
+            microinvestService.reconcileStoreQuantities(storeReconciliationApply);
+        } catch (Exception e) {
+            log.error("Failed to reconcile Microinvest store quantities", e);
+        }
     }
 
     @Scheduled(cron = "0 38 23 * * *")
@@ -212,22 +248,29 @@ public class CronJobService {
 
         int successful = 0;
         int failed = 0;
+        int unmapped = 0;
+
+        Map<String, String> offerIds = bolOfferService.resolveOfferIds(products.stream().map(Product::getId).toList());
 
         for (Product product : products) {
+            String offerId = offerIds.get(product.getId());
+            if (offerId == null) {
+                unmapped++;
+                log.debug("No BOL offer mapped for product {}, skipping stock push", product.getId());
+                continue;
+            }
             try {
-                // TODO: Here productId must be replaced with offerId
-//                bolService.processStockUpdateToBol(product.getId(), product.getStock());
+                bolService.enqueueStockUpdate(offerId, product.getStock());
                 successful++;
-                syncLogService.updateProgress(syncLog.getId(), successful + failed, successful, failed,
-                        String.format("Updated stock for product %s to %d", product.getId(), product.getStock()));
             } catch (Exception e) {
                 failed++;
                 log.error("Failed to update stock for product {} to BOL", product.getId(), e);
             }
         }
 
-        syncLogService.completeSync(syncLog.getId(), products.size(), successful, failed,
-                String.format("BOL stock update completed: %d successful, %d failed", successful, failed));
+        syncLogService.completeSync(syncLog.getId(), products.size(), successful, failed + unmapped,
+                String.format("BOL stock update queued: %d offers, %d failed, %d products without BOL offer",
+                        successful, failed, unmapped));
     }
 
     private void updateSkroutzFeed(List<Product> products, String batchId) {
@@ -236,9 +279,9 @@ public class CronJobService {
                 SyncOperation.FEED_UPDATE, sync, batchId + "-skroutz");
 
         try {
-//            skroutzFeedService.processStockUpdateToSkroutz(new File(FEED_PATH), products);
+            skroutzFeedService.markPending(products.stream().map(Product::getId).toList());
             syncLogService.completeSync(syncLog.getId(), products.size(), products.size(), 0,
-                    String.format("Skroutz feed updated with %d products", products.size()));
+                    String.format("Skroutz feed update queued for %d products", products.size()));
         } catch (Exception e) {
             syncLogService.failSync(syncLog.getId(), e.getMessage(), products.size(), 0, products.size());
             log.error("Failed to update Skroutz feed", e);
@@ -1,19 +1,23 @@
 package com.ludogoriesoft.sigmatherm.service;
 
+import com.ludogoriesoft.sigmatherm.dto.emag.EmagOffer;
+import com.ludogoriesoft.sigmatherm.dto.emag.EmagOffersResponse;
 import com.ludogoriesoft.sigmatherm.dto.emag.EmagOrder;
-import com.ludogoriesoft.sigmatherm.dto.emag.EmagOrdersCount;
 import com.ludogoriesoft.sigmatherm.dto.emag.EmagOrdersCountResponse;
 import com.ludogoriesoft.sigmatherm.dto.emag.EmagOrdersResponse;
 import com.ludogoriesoft.sigmatherm.dto.emag.EmagProduct;
 import com.ludogoriesoft.sigmatherm.dto.emag.EmagReturnedOrdersResponse;
 import com.ludogoriesoft.sigmatherm.dto.emag.EmagReturnedProduct;
 import com.ludogoriesoft.sigmatherm.dto.emag.EmagReturnedResult;
-import com.ludogoriesoft.sigmatherm.model.SyncLog;
 import com.ludogoriesoft.sigmatherm.model.Synchronization;
 import com.ludogoriesoft.sigmatherm.model.enums.Platform;
 import com.ludogoriesoft.sigmatherm.model.enums.SyncDirection;
 import com.ludogoriesoft.sigmatherm.model.enums.SyncOperation;
 import com.ludogoriesoft.sigmatherm.exception.EmagException;
+import com.ludogoriesoft.sigmatherm.service.connector.ConnectorPage;
+import com.ludogoriesoft.sigmatherm.service.connector.ConnectorSyncEngine;
+import com.ludogoriesoft.sigmatherm.service.connector.MarketplaceConnector;
+import com.ludogoriesoft.sigmatherm.service.connector.StockDelta;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -32,10 +36,16 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
@@ -48,6 +58,9 @@ public class EmagService {
     private static final String READ_PATH = "/read";
     private static final String COUNT_PATH = "/count";
     private static final String UPDATE_STOCK_PATH = "/api-3/offer_stock/";
+    private static final String OFFER_READ_PATH = "/api-3/product_offer/read";
+    private static final String OFFER_COUNT_PATH = "/api-3/product_offer/count";
+    private static final int OFFERS_PER_PAGE = 100;
 
     @Value("${emag.api.username}")
     private String username;
@@ -58,6 +71,7 @@ public class EmagService {
     private final RestTemplate restTemplate;
     private final ProductService productService;
     private final SyncLogService syncLogService;
+    private final ConnectorSyncEngine connectorSyncEngine;
 
     public void processStockUpdateToEmag(String url, String productId, int stock) {
         Platform platform = determinePlatformFromUrl(url);
@@ -109,62 +123,9 @@ public class EmagService {
         Platform platform = determinePlatformFromUrl(url);
         String batchId = platform.name().toLowerCase() + "-returns-" + System.currentTimeMillis();
 
-        SyncLog syncLog = syncLogService.startSync(
-                platform,
-                SyncDirection.INBOUND,
-                SyncOperation.RETURNS,
-                currentSync,
-                batchId
-        );
-
-        int totalProcessed = 0;
-        int totalSuccessful = 0;
-        int totalFailed = 0;
-
         try {
-            EmagReturnedOrdersResponse ordersResponse = getEmagReturnedOrdersResponse(url, lastSync);
-
-            if (ordersResponse != null && ordersResponse.getResults() != null && !ordersResponse.getResults().isEmpty()) {
-                log.info("Processing {} returned orders from {}", ordersResponse.getResults().size(), platform);
-
-                for (EmagReturnedResult result : ordersResponse.getResults()) {
-                    for (EmagReturnedProduct product : result.getProducts()) {
-                        totalProcessed++;
-                        try {
-                            String productId = product.getProduct_id();
-                            int quantity = product.getQuantity();
-
-                            productService.increaseAvailabilityByReturn(productId, quantity);
-                            productService.setSync(productId, currentSync);
-                            totalSuccessful++;
-
-                            log.debug("Processed returned product {}: {} units", productId, quantity);
-
-                        } catch (Exception e) {
-                            totalFailed++;
-                            log.error("Failed to process returned product {}", product.getProduct_id(), e);
-                        }
-
-                        // Update progress every 10 items
-                        if (totalProcessed % 10 == 0) {
-                            syncLogService.updateProgress(syncLog.getId(), totalProcessed, totalSuccessful, totalFailed,
-                                    String.format("Processed %d returned products", totalProcessed));
-                        }
-                    }
-                }
-            } else {
-                log.info("No returned orders found for {}", platform);
-            }
-
-            String details = String.format("Processed %d returned products from %s", totalProcessed, platform);
-            syncLogService.completeSync(syncLog.getId(), totalProcessed, totalSuccessful, totalFailed, details);
-
-            log.info("{} returns synchronized successfully! Processed: {}, Successful: {}, Failed: {}",
-                    platform, totalProcessed, totalSuccessful, totalFailed);
-
+            connectorSyncEngine.run(new EmagReturnsConnector(url, platform, lastSync), currentSync, batchId);
         } catch (Exception e) {
-            syncLogService.failSync(syncLog.getId(), e.getMessage(), totalProcessed, totalSuccessful, totalFailed);
-            log.error("Failed to fetch {} returns", platform, e);
             throw new RuntimeException("Failed to fetch " + platform + " returns", e);
         }
     }
@@ -173,91 +134,82 @@ public class EmagService {
         Platform platform = determinePlatformFromUrl(url);
         String batchId = platform.name().toLowerCase() + "-orders-" + System.currentTimeMillis();
 
-        SyncLog syncLog = syncLogService.startSync(
-                platform,
-                SyncDirection.INBOUND,
-                SyncOperation.ORDERS,
-                synchronization,
-                batchId
-        );
+        try {
+            connectorSyncEngine.run(new EmagOrdersConnector(url, platform, lastSync), synchronization, batchId);
+        } catch (EmagException e) {
+            // Re-throw EmagException as-is
+            throw e;
+        } catch (Exception e) {
+            throw new EmagException("Failed to fetch " + platform + " orders: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stream every offer of an eMag store to the consumer, fetching pages in parallel.
+     * The consumer is called from several threads and must be thread-safe.
+     * @return number of offers read
+     */
+    public int forEachOffer(String baseUrl, int concurrency, Consumer<EmagOffer> consumer) throws EmagException {
+        Platform platform = determinePlatformFromUrl(baseUrl);
+        EmagOrdersCountResponse countResponse = postForm(baseUrl + OFFER_COUNT_PATH, getOffersRequestBody(1),
+                EmagOrdersCountResponse.class);
+
+        if (countResponse == null || countResponse.isError() || countResponse.getResults() == null) {
+            String errorMsg = countResponse != null && countResponse.getMessages() != null && !countResponse.getMessages().isEmpty()
+                    ? countResponse.getMessages().get(0) : "Empty offer count response";
+            throw new EmagException(platform + " offer count error: " + errorMsg);
+        }
 
-        int totalProcessed = 0;
-        int totalSuccessful = 0;
-        int totalFailed = 0;
+        int totalPages = countResponse.getResults().getNoOfPages();
+        log.info("Reading {} pages of {} offers with {} parallel requests", totalPages, platform, concurrency);
 
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, concurrency));
         try {
-            // Get order count first
-            EmagOrdersCountResponse ordersCountResponse = getEmagOrdersCountResponse(url + COUNT_PATH, lastSync);
-
-            if (ordersCountResponse.isError()) {
-                String errorMsg = ordersCountResponse.getMessages().get(0);
-                log.warn("{} order count error: {}", platform, errorMsg);
-                syncLogService.failSync(syncLog.getId(), errorMsg, 0, 0, 0);
-                throw new EmagException(errorMsg);
+            List<Future<Integer>> pages = new ArrayList<>(totalPages);
+            for (int page = 1; page <= totalPages; page++) {
+                int currentPage = page;
+                pages.add(executor.submit(() -> readOfferPage(baseUrl, currentPage, consumer)));
             }
 
-            EmagOrdersCount ordersCount = ordersCountResponse.getResults();
-            int totalPages = ordersCount.getNoOfPages();
-
-            log.info("Processing {} pages of orders from {}", totalPages, platform);
-
-            // Process each page
-            for (int i = 1; i <= totalPages; i++) {
-                try {
-                    EmagOrdersResponse response = getEmagOrdersResponse(url + READ_PATH, i, lastSync);
-
-                    if (response.isError()) {
-                        String errorMsg = response.getMessages().get(0);
-                        log.warn("Error on page {} for {}: {}", i, platform, errorMsg);
-                        totalFailed++;
-                        continue;
-                    }
-
-                    // Process orders on this page
-                    for (EmagOrder order : response.getResults()) {
-                        for (EmagProduct product : order.getProducts()) {
-                            totalProcessed++;
-                            try {
-                                productService.reduceAvailabilityByOrder(product.getProduct_id(), product.getQuantity());
-                                productService.setSync(product.getProduct_id(), synchronization);
-                                totalSuccessful++;
-
-                                log.debug("Processed order product {}: {} units", product.getProduct_id(), product.getQuantity());
-
-                            } catch (Exception e) {
-                                totalFailed++;
-                                log.error("Failed to process product {} in order from {}", product.getProduct_id(), platform, e);
-                            }
-                        }
-                    }
-
-                    // Update progress after each page
-                    syncLogService.updateProgress(syncLog.getId(), totalProcessed, totalSuccessful, totalFailed,
-                            String.format("Processed page %d/%d (%d products so far)", i, totalPages, totalProcessed));
-
-                    log.debug("Completed page {}/{} for {}", i, totalPages, platform);
-
-                } catch (Exception e) {
-                    log.error("Error processing page {} from {}", i, platform, e);
-                    totalFailed++;
-                }
+            int total = 0;
+            for (Future<Integer> page : pages) {
+                total += page.get();
             }
+            return total;
+        } catch (ExecutionException e) {
+            throw new EmagException("Failed to read " + platform + " offers: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EmagException("Interrupted while reading " + platform + " offers");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
-            // Complete the sync
-            String details = String.format("Processed %d pages with %d products from %s", totalPages, totalProcessed, platform);
-            syncLogService.completeSync(syncLog.getId(), totalProcessed, totalSuccessful, totalFailed, details);
+    private int readOfferPage(String baseUrl, int page, Consumer<EmagOffer> consumer) {
+        EmagOffersResponse response = postForm(baseUrl + OFFER_READ_PATH, getOffersRequestBody(page), EmagOffersResponse.class);
+        if (response == null || response.isError()) {
+            String errorMsg = response != null && response.getMessages() != null && !response.getMessages().isEmpty()
+                    ? response.getMessages().get(0) : "Empty offer page response";
+            throw new IllegalStateException("Offer page " + page + ": " + errorMsg);
+        }
+        if (response.getResults() == null) {
+            return 0;
+        }
+        response.getResults().forEach(consumer);
+        return response.getResults().size();
+    }
 
-            log.info("{} orders synchronized successfully! Pages: {}, Products: {}, Successful: {}, Failed: {}",
-                    platform, totalPages, totalProcessed, totalSuccessful, totalFailed);
+    private <T> T postForm(String url, MultiValueMap<String, String> body, Class<T> responseType) {
+        HttpEntity<MultiValueMap<String, String>> entity = new HttpEntity<>(body, getHeaders());
+        return restTemplate.postForEntity(url, entity, responseType).getBody();
+    }
 
-        } catch (EmagException e) {
-            // Re-throw EmagException as-is
-            throw e;
-        } catch (Exception e) {
-            syncLogService.failSync(syncLog.getId(), e.getMessage(), totalProcessed, totalSuccessful, totalFailed);
-            log.error("Failed to fetch {} orders", platform, e);
-            throw new EmagException("Failed to fetch " + platform + " orders: " + e.getMessage());
-        }
+    private static MultiValueMap<String, String> getOffersRequestBody(int page) {
+        MultiValueMap<String, String> body = new LinkedMultiValueMap<>();
+        body.add("currentPage", String.valueOf(page));
+        body.add("itemsPerPage", String.valueOf(OFFERS_PER_PAGE));
+        return body;
     }
 
     private Platform determinePlatformFromUrl(String url) {
@@ -367,4 +319,110 @@ public class EmagService {
         body.add("request_status", "3");
         return body;
     }
-}
\ No newline at end of file
+
+    /**
+     * Finalized orders, one record per ordered product line
+     */
+    @RequiredArgsConstructor
+    private class EmagOrdersConnector implements MarketplaceConnector<EmagProduct> {
+        private final String url;
+        private final Platform platform;
+        private final Synchronization lastSync;
+
+        @Override
+        public Platform platform() {
+            return platform;
+        }
+
+        @Override
+        public SyncOperation operation() {
+            return SyncOperation.ORDERS;
+        }
+
+        @Override
+        public String windowKey() {
+            MultiValueMap<String, String> body = getOrdersRequestBody(1, lastSync);
+            return body.getFirst("createdAfter") + ".." + body.getFirst("createdBefore");
+        }
+
+        @Override
+        public ConnectorPage<EmagProduct> fetchPage(int page) {
+            int totalPages = page;
+            if (page == 1) {
+                EmagOrdersCountResponse ordersCountResponse = getEmagOrdersCountResponse(url + COUNT_PATH, lastSync);
+                if (ordersCountResponse.isError()) {
+                    String errorMsg = ordersCountResponse.getMessages().get(0);
+                    log.warn("{} order count error: {}", platform, errorMsg);
+                    throw new EmagException(errorMsg);
+                }
+                totalPages = ordersCountResponse.getResults().getNoOfPages();
+                log.info("Processing {} pages of orders from {}", totalPages, platform);
+                if (totalPages == 0) {
+                    return ConnectorPage.single(List.of());
+                }
+            }
+
+            EmagOrdersResponse response = getEmagOrdersResponse(url + READ_PATH, page, lastSync);
+            if (response.isError()) {
+                throw new EmagException("Error on page " + page + " for " + platform + ": " + response.getMessages().get(0));
+            }
+
+            List<EmagProduct> products = new ArrayList<>();
+            for (EmagOrder order : response.getResults()) {
+                products.addAll(order.getProducts());
+            }
+            return new ConnectorPage<>(products, totalPages);
+        }
+
+        @Override
+        public List<StockDelta> map(EmagProduct product) {
+            return List.of(StockDelta.sale(product.getProduct_id(), product.getQuantity()));
+        }
+    }
+
+    /**
+     * Finalized returns (RMA), served as a single unpaged response
+     */
+    @RequiredArgsConstructor
+    private class EmagReturnsConnector implements MarketplaceConnector<EmagReturnedProduct> {
+        private final String url;
+        private final Platform platform;
+        private final Synchronization lastSync;
+
+        @Override
+        public Platform platform() {
+            return platform;
+        }
+
+        @Override
+        public SyncOperation operation() {
+            return SyncOperation.RETURNS;
+        }
+
+        @Override
+        public String windowKey() {
+            MultiValueMap<String, String> body = getReturnedOrdersRequestBody(lastSync);
+            return body.getFirst("date_start") + ".." + body.getFirst("date_end");
+        }
+
+        @Override
+        public ConnectorPage<EmagReturnedProduct> fetchPage(int page) {
+            EmagReturnedOrdersResponse ordersResponse = getEmagReturnedOrdersResponse(url, lastSync);
+            if (ordersResponse == null || ordersResponse.getResults() == null || ordersResponse.getResults().isEmpty()) {
+                log.info("No returned orders found for {}", platform);
+                return ConnectorPage.single(List.of());
+            }
+
+            List<EmagReturnedProduct> products = new ArrayList<>();
+            for (EmagReturnedResult result : ordersResponse.getResults()) {
+                products.addAll(result.getProducts());
+            }
+            return ConnectorPage.single(products);
+        }
+
+        @Override
+        public List<StockDelta> map(EmagReturnedProduct product) {
+            return List.of(StockDelta.returned(product.getProduct_id(), product.getQuantity()));
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.ludogoriesoft.sigmatherm.service;
+
+import com.ludogoriesoft.sigmatherm.repository.LocationStockJdbcRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-location Microinvest stock and its weighted aggregate, Product.locationStock.
+ * Location weights are percentages: microinvest.locations.weights=10:100,12:50 counts all of
+ * location 10 and half of location 12. Unlisted locations use the default weight (0 unless set),
+ * excluded locations always count 0. Without any weights only microinvest.object.id counts.
+ */
+@Slf4j
+@Service
+public class LocationStockService {
+
+    private final LocationStockJdbcRepository locationStockJdbcRepository;
+    private final Map<Long, Integer> weights;
+    private final int defaultWeight;
+
+    // Weights can change with a restart, so the first pass recomputes every aggregate
+    private final AtomicBoolean aggregatesCurrent = new AtomicBoolean();
+
+    public LocationStockService(LocationStockJdbcRepository locationStockJdbcRepository,
+                                @Value("${microinvest.locations.weights:}") String weights,
+                                @Value("${microinvest.locations.excluded:}") String excluded,
+                                @Value("${microinvest.locations.default-weight:0}") int defaultWeight,
+                                @Value("${microinvest.object.id:10}") long storeObjectId) {
+        this.locationStockJdbcRepository = locationStockJdbcRepository;
+        this.defaultWeight = defaultWeight;
+        this.weights = parseWeights(weights, excluded, storeObjectId);
+        log.info("Microinvest location weights: {} (default {})", this.weights, defaultWeight);
+    }
+
+    /**
+     * Weight of a location in percent; 0 leaves it out of the aggregate
+     */
+    public int weightOf(long objectId) {
+        return weights.getOrDefault(objectId, defaultWeight);
+    }
+
+    /**
+     * Start a full /Store pass; rows the pass does not see again are removed when it completes
+     */
+    public Pass startPass() {
+        return new Pass(LocalDateTime.now());
+    }
+
+    private int updateAggregates(Set<String> productIds) {
+        Long[] objectIds = weights.keySet().toArray(Long[]::new);
+        Integer[] percents = weights.values().toArray(Integer[]::new);
+        return locationStockJdbcRepository.updateAggregates(productIds, objectIds, percents, defaultWeight);
+    }
+
+    private static Map<Long, Integer> parseWeights(String weights, String excluded, long storeObjectId) {
+        Map<Long, Integer> parsed = new LinkedHashMap<>();
+        for (String entry : weights.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid location weight '" + entry + "', expected objectId:percent");
+            }
+            parsed.put(Long.parseLong(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        }
+        if (parsed.isEmpty()) {
+            parsed.put(storeObjectId, 100);
+        }
+        for (String entry : excluded.split(",")) {
+            if (!entry.isBlank()) {
+                parsed.put(Long.parseLong(entry.trim()), 0);
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * One pass over /Store. Rows are buffered per page, summed per product and location,
+     * and written with one statement per page. A product and location seen on several pages
+     * is summed across them, matching the store reconciliation; only products whose rows
+     * changed get their aggregate recomputed when the pass finishes.
+     */
+    public final class Pass {
+        private final LocalDateTime syncedAt;
+        private final Map<LocationKey, Integer> page = new HashMap<>();
+        private final Set<String> changedProducts = new HashSet<>();
+
+        private Pass(LocalDateTime syncedAt) {
+            this.syncedAt = syncedAt;
+        }
+
+        public void add(String productId, long objectId, int quantity) {
+            page.merge(new LocationKey(productId, objectId), quantity, Integer::sum);
+        }
+
+        public void flushPage() {
+            if (page.isEmpty()) {
+                return;
+            }
+            List<String> productIds = new ArrayList<>(page.size());
+            List<Long> objectIds = new ArrayList<>(page.size());
+            List<Integer> quantities = new ArrayList<>(page.size());
+            page.forEach((key, quantity) -> {
+                productIds.add(key.productId());
+                objectIds.add(key.objectId());
+                quantities.add(quantity);
+            });
+            page.clear();
+            changedProducts.addAll(locationStockJdbcRepository.upsert(productIds, objectIds, quantities, syncedAt));
+        }
+
+        /**
+         * @param complete every page was read, so rows that were not seen are gone from Microinvest
+         * @return number of products whose aggregate changed
+         */
+        public int finish(boolean complete) {
+            flushPage();
+            if (complete) {
+                changedProducts.addAll(locationStockJdbcRepository.deleteNotSyncedSince(syncedAt));
+            }
+            if (!aggregatesCurrent.getAndSet(true)) {
+                try {
+                    return updateAggregates(null);
+                } catch (RuntimeException e) {
+                    aggregatesCurrent.set(false);
+                    throw e;
+                }
+            }
+            return changedProducts.isEmpty() ? 0 : updateAggregates(changedProducts);
+        }
+
+        public int changedProducts() {
+            return changedProducts.size();
+        }
+    }
+
+    private record LocationKey(String productId, long objectId) {
+    }
+}
@@ -3,12 +3,15 @@ package com.ludogoriesoft.sigmatherm.service;
 import com.ludogoriesoft.sigmatherm.dto.magento.MagentoProductResponseDto;
 import com.ludogoriesoft.sigmatherm.dto.magento.MagentoProductSalesDto;
 import com.ludogoriesoft.sigmatherm.model.Product;
-import com.ludogoriesoft.sigmatherm.model.SyncLog;
 import com.ludogoriesoft.sigmatherm.model.Synchronization;
 import com.ludogoriesoft.sigmatherm.model.enums.Platform;
 import com.ludogoriesoft.sigmatherm.model.enums.SyncDirection;
 import com.ludogoriesoft.sigmatherm.model.enums.SyncOperation;
-import jakarta.transaction.Transactional;
+import com.ludogoriesoft.sigmatherm.service.connector.ConnectorPage;
+import com.ludogoriesoft.sigmatherm.service.connector.ConnectorRunResult;
+import com.ludogoriesoft.sigmatherm.service.connector.ConnectorSyncEngine;
+import com.ludogoriesoft.sigmatherm.service.connector.MarketplaceConnector;
+import com.ludogoriesoft.sigmatherm.service.connector.StockDelta;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -24,6 +27,7 @@ public class MagentoService {
     private final SynchronizationService synchronizationService;
     private final SyncLogService syncLogService;
     private final ProductService productService;
+    private final ConnectorSyncEngine connectorSyncEngine;
 
     public List<MagentoProductResponseDto> getAllSyncProducts() {
         // Log the outbound operation to provide stock data to Magento
@@ -47,7 +51,6 @@ public class MagentoService {
         return response;
     }
 
-    @Transactional
     public ResponseEntity<String> receiveProductSales(List<MagentoProductSalesDto> products) {
         String batchId = "magento-sales-" + System.currentTimeMillis();
 
@@ -68,70 +71,25 @@ public class MagentoService {
             return ResponseEntity.badRequest().body("Empty list of product sales");
         }
 
-        // Start logging the sales sync operation
         Synchronization synchronization = synchronizationService.createSync(Platform.Magento);
-        SyncLog syncLog = syncLogService.startSync(
-                Platform.Magento,
-                SyncDirection.INBOUND,
-                SyncOperation.ORDERS,
-                synchronization,
-                batchId
-        );
-
-        int totalProducts = products.size();
-        int successfulProducts = 0;
-        int failedProducts = 0;
+        log.info("Processing {} product sales from Magento", products.size());
 
         try {
-            log.info("Processing {} product sales from Magento", totalProducts);
-
-            for (MagentoProductSalesDto product : products) {
-                try {
-                    productService.reduceAvailabilityByOrder(product.getId(), product.getSales());
-                    productService.setSync(product.getId(), synchronization);
-                    successfulProducts++;
-
-                    log.debug("Processed sale for product {}: {} units", product.getId(), product.getSales());
-
-                    // Update progress every 10 products
-                    if ((successfulProducts + failedProducts) % 10 == 0) {
-                        syncLogService.updateProgress(
-                                syncLog.getId(),
-                                successfulProducts + failedProducts,
-                                successfulProducts,
-                                failedProducts,
-                                String.format("Processed %d/%d product sales",
-                                        successfulProducts + failedProducts, totalProducts)
-                        );
-                    }
-
-                } catch (Exception e) {
-                    failedProducts++;
-                    log.error("Failed to process sale for product {}: {}", product.getId(), e.getMessage(), e);
-                }
-            }
-
-            // Complete the sync log
-            String details = String.format("Processed %d product sales from Magento", totalProducts);
-            syncLogService.completeSync(syncLog.getId(), totalProducts, successfulProducts, failedProducts, details);
+            ConnectorRunResult result = connectorSyncEngine.run(new SalesConnector(products), synchronization, batchId);
 
-            if (failedProducts > 0) {
+            if (result.failed() > 0) {
                 log.warn("Magento sales sync completed with {} failures out of {} products",
-                        failedProducts, totalProducts);
+                        result.failed(), result.processed());
                 return ResponseEntity.status(206) // Partial Content
                         .body(String.format("Partial success: %d successful, %d failed",
-                                successfulProducts, failedProducts));
+                                result.successful(), result.failed()));
             } else {
-                log.info("Successfully processed all {} product sales from Magento", totalProducts);
+                log.info("Successfully processed all {} product sales from Magento", result.processed());
                 return ResponseEntity.ok("Product sales received successfully!");
             }
 
         } catch (Exception e) {
             log.error("Failed to sync sales from Magento: {}", e.getMessage(), e);
-
-            syncLogService.failSync(syncLog.getId(), e.getMessage(),
-                    successfulProducts + failedProducts, successfulProducts, failedProducts);
-
             return ResponseEntity.badRequest().body("Failed to sync the sales: " + e.getMessage());
         }
     }
@@ -142,4 +100,32 @@ public class MagentoService {
         productResponseDto.setStock(product.getStock());
         return productResponseDto;
     }
-}
\ No newline at end of file
+
+    /**
+     * Sales pushed by Magento; the request body is the only page
+     */
+    @RequiredArgsConstructor
+    private static class SalesConnector implements MarketplaceConnector<MagentoProductSalesDto> {
+        private final List<MagentoProductSalesDto> sales;
+
+        @Override
+        public Platform platform() {
+            return Platform.Magento;
+        }
+
+        @Override
+        public SyncOperation operation() {
+            return SyncOperation.ORDERS;
+        }
+
+        @Override
+        public ConnectorPage<MagentoProductSalesDto> fetchPage(int page) {
+            return ConnectorPage.single(sales);
+        }
+
+        @Override
+        public List<StockDelta> map(MagentoProductSalesDto sale) {
+            return List.of(StockDelta.sale(sale.getId(), sale.getSales()));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.ludogoriesoft.sigmatherm.service;
+
+import com.ludogoriesoft.sigmatherm.dto.microinvest.OperationDto;
+import com.ludogoriesoft.sigmatherm.model.MicroinvestOutboxEntry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Drains the Microinvest outbox: claims due entries in batches and hands them to the
+ * operation batcher, so each claimed batch goes out as one POST /operation.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MicroinvestOutboxRelay {
+
+    @Value("${microinvest.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${microinvest.outbox.lease-ms:120000}")
+    private long leaseMs;
+
+    @Value("${microinvest.outbox.retention-days:14}")
+    private int retentionDays;
+
+    private final MicroinvestOutboxService outboxService;
+    private final MicroinvestService microinvestService;
+
+    @Scheduled(fixedDelayString = "${microinvest.outbox.poll-interval-ms:2000}")
+    public void relay() {
+        List<MicroinvestOutboxEntry> entries;
+        do {
+            entries = outboxService.claimDue(batchSize, Duration.ofMillis(leaseMs));
+            if (!entries.isEmpty()) {
+                send(entries);
+            }
+        } while (entries.size() == batchSize);
+    }
+
+    @Scheduled(cron = "${microinvest.outbox.cleanup-cron:0 15 3 * * *}")
+    public void deleteSentEntries() {
+        int deleted = outboxService.deleteSentBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            log.info("Deleted {} sent Microinvest outbox entries older than {} days", deleted, retentionDays);
+        }
+    }
+
+    private void send(List<MicroinvestOutboxEntry> entries) {
+        List<MicroinvestOutboxEntry> submitted = new ArrayList<>(entries.size());
+        List<CompletableFuture<OperationDto>> results = new ArrayList<>(entries.size());
+        for (MicroinvestOutboxEntry entry : entries) {
+            OperationDto operation;
+            try {
+                operation = outboxService.readPayload(entry);
+            } catch (Exception e) {
+                outboxService.markDead(entry, "Unreadable payload: " + e.getMessage());
+                continue;
+            }
+            submitted.add(entry);
+            results.add(microinvestService.submitOperation(operation));
+        }
+
+        List<MicroinvestOutboxEntry> sent = new ArrayList<>(submitted.size());
+        for (int i = 0; i < submitted.size(); i++) {
+            try {
+                results.get(i).join();
+                sent.add(submitted.get(i));
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                if (neverReachedMicroinvest(cause)) {
+                    outboxService.markFailed(submitted.get(i), cause.getMessage());
+                } else {
+                    // A timeout or server error may come after the operation was created
+                    outboxService.markDead(submitted.get(i),
+                            "Unknown outcome, check Microinvest before replaying: " + cause.getMessage());
+                }
+            }
+        }
+        if (!sent.isEmpty()) {
+            outboxService.markSent(sent);
+        }
+
+        log.info("Relayed {} Microinvest operations: {} sent, {} failed",
+                entries.size(), sent.size(), entries.size() - sent.size());
+    }
+
+    /**
+     * A 4xx rejection, a failed connection or a batcher shutdown, so retrying cannot create a duplicate
+     */
+    private static boolean neverReachedMicroinvest(Throwable failure) {
+        if (MicroinvestService.isRejected(failure) || failure instanceof RejectedExecutionException) {
+            return true;
+        }
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof UnknownHostException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
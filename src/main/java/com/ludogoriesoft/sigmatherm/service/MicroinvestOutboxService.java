@@ -0,0 +1,188 @@
+package com.ludogoriesoft.sigmatherm.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ludogoriesoft.sigmatherm.dto.microinvest.OperationDto;
+import com.ludogoriesoft.sigmatherm.exception.ObjectNotFoundException;
+import com.ludogoriesoft.sigmatherm.model.MicroinvestOutboxEntry;
+import com.ludogoriesoft.sigmatherm.model.enums.OutboxStatus;
+import com.ludogoriesoft.sigmatherm.repository.MicroinvestOutboxRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Durable queue of outbound Microinvest operations. Callers only insert a row in their own
+ * transaction; {@link MicroinvestOutboxRelay} delivers it, retrying with exponential backoff
+ * until the entry is sent or dead-lettered after the maximum number of attempts. Microinvest
+ * cannot deduplicate operations, so an attempt that may have reached it is never retried
+ * automatically: it is dead-lettered for a manual check and replay.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MicroinvestOutboxService {
+
+    @Value("${microinvest.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${microinvest.outbox.backoff-ms:5000}")
+    private long backoffMs;
+
+    @Value("${microinvest.outbox.max-backoff-ms:600000}")
+    private long maxBackoffMs;
+
+    private final MicroinvestOutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+
+    @Transactional
+    public MicroinvestOutboxEntry enqueue(OperationDto operation) {
+        LocalDateTime now = LocalDateTime.now();
+        MicroinvestOutboxEntry entry = MicroinvestOutboxEntry.builder()
+                .operationType(operation.getOperationType())
+                .goodId(operation.getGoodId())
+                .quantity(operation.getQuantity())
+                .payload(toJson(operation))
+                .status(OutboxStatus.PENDING)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build();
+        return outboxRepository.save(entry);
+    }
+
+    /**
+     * Lease up to limit due entries to the caller. An entry whose lease ran out (the relay died
+     * mid-send) may already exist in Microinvest, so it is dead-lettered instead of sent again.
+     */
+    @Transactional
+    public List<MicroinvestOutboxEntry> claimDue(int limit, Duration lease) {
+        LocalDateTime now = LocalDateTime.now();
+        List<MicroinvestOutboxEntry> entries = outboxRepository.lockDue(now, limit);
+        List<MicroinvestOutboxEntry> claimed = new ArrayList<>(entries.size());
+        for (MicroinvestOutboxEntry entry : entries) {
+            if (entry.getStatus() == OutboxStatus.SENDING) {
+                entry.setStatus(OutboxStatus.DEAD);
+                entry.setLastError("Lease expired while sending, check Microinvest before replaying");
+                log.error("Microinvest operation {} for good {} is dead: its send lease expired",
+                        entry.getId(), entry.getGoodId());
+                continue;
+            }
+            entry.setStatus(OutboxStatus.SENDING);
+            entry.setAttempts(entry.getAttempts() + 1);
+            entry.setNextAttemptAt(now.plus(lease));
+            claimed.add(entry);
+        }
+        outboxRepository.saveAll(entries);
+        return claimed;
+    }
+
+    @Transactional
+    public void markSent(List<MicroinvestOutboxEntry> entries) {
+        LocalDateTime now = LocalDateTime.now();
+        for (MicroinvestOutboxEntry entry : entries) {
+            entry.setStatus(OutboxStatus.SENT);
+            entry.setSentAt(now);
+            entry.setLastError(null);
+        }
+        outboxRepository.saveAll(entries);
+    }
+
+    /**
+     * Schedule the next attempt, or dead-letter the entry once it used up its attempts
+     */
+    @Transactional
+    public void markFailed(MicroinvestOutboxEntry entry, String error) {
+        entry.setLastError(error);
+        if (entry.getAttempts() >= maxAttempts) {
+            entry.setStatus(OutboxStatus.DEAD);
+            log.error("Microinvest operation {} for good {} is dead after {} attempts: {}",
+                    entry.getId(), entry.getGoodId(), entry.getAttempts(), error);
+        } else {
+            long delay = Math.min(maxBackoffMs, backoffMs << Math.min(entry.getAttempts() - 1, 20));
+            entry.setStatus(OutboxStatus.PENDING);
+            entry.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(delay)));
+        }
+        outboxRepository.save(entry);
+    }
+
+    /**
+     * Dead-letter an entry that can never be sent, such as an unreadable payload
+     */
+    @Transactional
+    public void markDead(MicroinvestOutboxEntry entry, String error) {
+        entry.setStatus(OutboxStatus.DEAD);
+        entry.setLastError(error);
+        outboxRepository.save(entry);
+        log.error("Microinvest operation {} for good {} is dead: {}", entry.getId(), entry.getGoodId(), error);
+    }
+
+    /**
+     * Give a dead entry a fresh set of attempts, starting right away
+     */
+    @Transactional
+    public MicroinvestOutboxEntry replay(UUID id) {
+        MicroinvestOutboxEntry entry = outboxRepository.findById(id)
+                .orElseThrow(() -> new ObjectNotFoundException("Outbox entry not found: " + id));
+        if (entry.getStatus() != OutboxStatus.DEAD) {
+            throw new IllegalArgumentException("Only dead outbox entries can be replayed, " + id + " is "
+                    + entry.getStatus());
+        }
+        resetForReplay(entry);
+        return outboxRepository.save(entry);
+    }
+
+    @Transactional
+    public int replayDead() {
+        List<MicroinvestOutboxEntry> dead = outboxRepository.findByStatusOrderByCreatedAtAsc(OutboxStatus.DEAD);
+        dead.forEach(this::resetForReplay);
+        outboxRepository.saveAll(dead);
+        log.info("Replaying {} dead Microinvest operations", dead.size());
+        return dead.size();
+    }
+
+    public List<MicroinvestOutboxEntry> getEntries(OutboxStatus status) {
+        return outboxRepository.findByStatusOrderByCreatedAtAsc(status);
+    }
+
+    public long countByStatus(OutboxStatus status) {
+        return outboxRepository.countByStatus(status);
+    }
+
+    @Transactional
+    public int deleteSentBefore(LocalDateTime before) {
+        return outboxRepository.deleteSentBefore(before);
+    }
+
+    /**
+     * The stored operation, with the entry id appended to its note so an operation found in
+     * Microinvest can be traced back to its outbox entry
+     */
+    public OperationDto readPayload(MicroinvestOutboxEntry entry) throws JsonProcessingException {
+        OperationDto operation = objectMapper.readValue(entry.getPayload(), OperationDto.class);
+        String note = operation.getNote() != null ? operation.getNote() + " " : "";
+        operation.setNote(note + "[outbox " + entry.getId() + "]");
+        return operation;
+    }
+
+    private void resetForReplay(MicroinvestOutboxEntry entry) {
+        entry.setStatus(OutboxStatus.PENDING);
+        entry.setAttempts(0);
+        entry.setNextAttemptAt(LocalDateTime.now());
+    }
+
+    private String toJson(OperationDto operation) {
+        try {
+            return objectMapper.writeValueAsString(operation);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize Microinvest operation: " + e.getMessage(), e);
+        }
+    }
+}
@@ -6,29 +6,58 @@ import com.ludogoriesoft.sigmatherm.dto.microinvest.ItemDto;
 import com.ludogoriesoft.sigmatherm.dto.microinvest.OperationDto;
 import com.ludogoriesoft.sigmatherm.dto.microinvest.StoreDto;
 import com.ludogoriesoft.sigmatherm.dto.request.ProductRequest;
+import com.ludogoriesoft.sigmatherm.dto.response.StockDriftReport;
+import com.ludogoriesoft.sigmatherm.helper.LongIntHashMap;
+import com.ludogoriesoft.sigmatherm.helper.MicroBatcher;
+import com.ludogoriesoft.sigmatherm.helper.StockSnapshot;
+import com.ludogoriesoft.sigmatherm.model.SyncCheckpoint;
 import com.ludogoriesoft.sigmatherm.model.SyncLog;
 import com.ludogoriesoft.sigmatherm.model.Synchronization;
 import com.ludogoriesoft.sigmatherm.model.enums.Platform;
 import com.ludogoriesoft.sigmatherm.model.enums.SyncDirection;
 import com.ludogoriesoft.sigmatherm.model.enums.SyncOperation;
+import com.ludogoriesoft.sigmatherm.repository.ProductJdbcRepository;
+import com.ludogoriesoft.sigmatherm.service.connector.ConnectorPage;
+import com.ludogoriesoft.sigmatherm.service.connector.ConnectorSettings;
+import com.ludogoriesoft.sigmatherm.service.connector.ConnectorSyncEngine;
+import com.ludogoriesoft.sigmatherm.service.connector.MarketplaceConnector;
+import com.ludogoriesoft.sigmatherm.service.connector.StockDelta;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -39,212 +68,209 @@ public class MicroinvestService {
     private final SyncLogService syncLogService;
     private final ProductService productService;
     private final BrandService brandService;
+    private final ConnectorSyncEngine connectorSyncEngine;
+    private final SyncCheckpointService syncCheckpointService;
+    private final MicroinvestOutboxService microinvestOutboxService;
+    private final int importPageSize;
+    private final int importConcurrency;
+    private final ProductJdbcRepository productJdbcRepository;
+    private final LocationStockService locationStockService;
+    private final long storeCacheTtlMs;
+    private final int storeFallbackMaxGoods;
+    private final Map<Long, CachedLocation> storeSnapshots = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Optional<StoreDto>>> storeRequestsInFlight = new ConcurrentHashMap<>();
+    private final int maxReportedDrifts;
+    private final MicroBatcher<OperationDto, OperationDto> operationBatcher;
+    private final int backfillChunkDays;
+    private final int backfillConcurrency;
 
     private static final Integer SALE_OPERATION_TYPE = 2;
     private static final Integer STORNO_OPERATION_TYPE = 34;
+    private static final int UNKNOWN_TOTAL_PAGES = -1;
+    private static final int NOT_IN_STORE = Integer.MIN_VALUE;
+    private static final int MAX_LOGGED_OPERATIONS = 50;
 
     public MicroinvestService(@Value("${microinvest.api.url}") String baseUrl,
                               SynchronizationService synchronizationService,
                               SyncLogService syncLogService,
                               ProductService productService,
-                              BrandService brandService) {
+                              BrandService brandService,
+                              ConnectorSyncEngine connectorSyncEngine,
+                              SyncCheckpointService syncCheckpointService,
+                              MicroinvestOutboxService microinvestOutboxService,
+                              @Value("${microinvest.import.page-size:500}") int importPageSize,
+                              @Value("${microinvest.import.concurrency:4}") int importConcurrency,
+                              ProductJdbcRepository productJdbcRepository,
+                              LocationStockService locationStockService,
+                              @Value("${reconciliation.max-reported-drifts:200}") int maxReportedDrifts,
+                              @Value("${microinvest.operations.batch-size:50}") int operationBatchSize,
+                              @Value("${microinvest.operations.batch-window-ms:50}") long operationBatchWindowMs,
+                              @Value("${microinvest.backfill.chunk-days:1}") int backfillChunkDays,
+                              @Value("${microinvest.backfill.concurrency:4}") int backfillConcurrency,
+                              @Value("${microinvest.store-cache.ttl-ms:30000}") long storeCacheTtlMs,
+                              @Value("${microinvest.store-cache.fallback-max-goods:50}") int storeFallbackMaxGoods) {
+        // JSON arrays are decoded element by element (bodyToFlux), so the default
+        // in-memory limit only applies to a single element, never to a whole page
         this.webClient = WebClient.builder()
-                .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(10 * 1024 * 1024))
                 .baseUrl(baseUrl)
                 .build();
         this.synchronizationService = synchronizationService;
         this.syncLogService = syncLogService;
         this.productService = productService;
         this.brandService = brandService;
+        this.connectorSyncEngine = connectorSyncEngine;
+        this.syncCheckpointService = syncCheckpointService;
+        this.microinvestOutboxService = microinvestOutboxService;
+        this.importPageSize = importPageSize;
+        this.importConcurrency = Math.max(1, importConcurrency);
+        this.productJdbcRepository = productJdbcRepository;
+        this.locationStockService = locationStockService;
+        this.maxReportedDrifts = maxReportedDrifts;
+        this.operationBatcher = new MicroBatcher<>("microinvest-operations", operationBatchSize,
+                Duration.ofMillis(operationBatchWindowMs), this::sendOperations);
+        this.backfillChunkDays = Math.max(1, backfillChunkDays);
+        this.backfillConcurrency = Math.max(1, backfillConcurrency);
+        this.storeCacheTtlMs = storeCacheTtlMs;
+        this.storeFallbackMaxGoods = storeFallbackMaxGoods;
     }
 
     public void processMicroinvestOrders(LocalDate from, LocalDate to) {
+        processMicroinvestOrders(from, to, backfillChunkDays);
+    }
+
+    /**
+     * @param chunkDays days per chunk; chunks are fetched in parallel and applied in date order
+     */
+    public void processMicroinvestOrders(LocalDate from, LocalDate to, int chunkDays) {
         String batchId = "microinvest-orders-" + System.currentTimeMillis();
         Synchronization sync = synchronizationService.createSync(Platform.Microinvest);
 
-        SyncLog syncLog = syncLogService.startSync(
-                Platform.Microinvest,
-                SyncDirection.INBOUND,
-                SyncOperation.ORDERS,
-                sync,
-                batchId
-        );
-
-        int processedItems = 0;
-        int successfulItems = 0;
-        int failedItems = 0;
-
         try {
-            Optional<List<OperationDto>> ordersOpt = fetchOperationsFromMicroinvestApi(SALE_OPERATION_TYPE, from, to);
-
-            if (ordersOpt.isEmpty() || ordersOpt.get().isEmpty()) {
-                log.info("No Microinvest orders found for period {} to {}", from, to);
-                syncLogService.completeSync(syncLog.getId(), 0, 0, 0, "No orders found for the specified period");
-                return;
-            }
-
-            List<OperationDto> orders = ordersOpt.get();
-            log.info("Processing {} Microinvest orders", orders.size());
-
-            for (OperationDto order : orders) {
-                processedItems++;
-                try {
-                    productService.reduceAvailabilityByOrder(order.getGoodId(), order.getQuantity());
-                    productService.setSync(order.getGoodId(), sync);
-                    successfulItems++;
-
-                    log.debug("Processed order for product {}: {} units", order.getGoodId(), order.getQuantity());
-
-                    // Update progress every 10 items
-                    if (processedItems % 10 == 0) {
-                        syncLogService.updateProgress(
-                                syncLog.getId(),
-                                processedItems,
-                                successfulItems,
-                                failedItems,
-                                String.format("Processed %d/%d Microinvest orders", processedItems, orders.size())
-                        );
-                    }
-
-                } catch (Exception e) {
-                    failedItems++;
-                    log.error("Failed to process Microinvest order for product {}: {}",
-                            order.getGoodId(), e.getMessage(), e);
-                }
-            }
-
-            String details = String.format("Processed Microinvest orders from %s to %s", from, to);
-            syncLogService.completeSync(syncLog.getId(), processedItems, successfulItems, failedItems, details);
-
-            log.info("Microinvest orders processing completed: {} total, {} successful, {} failed",
-                    processedItems, successfulItems, failedItems);
-
+            connectorSyncEngine.run(new OperationsConnector(SyncOperation.ORDERS, SALE_OPERATION_TYPE, from, to,
+                    Math.max(1, chunkDays)), sync, batchId);
         } catch (Exception e) {
             log.error("Failed to process Microinvest orders", e);
-            syncLogService.failSync(syncLog.getId(), e.getMessage(), processedItems, successfulItems, failedItems);
         }
     }
 
     public void processMicroinvestReturns(LocalDate from, LocalDate to) {
+        processMicroinvestReturns(from, to, backfillChunkDays);
+    }
+
+    /**
+     * @param chunkDays days per chunk; chunks are fetched in parallel and applied in date order
+     */
+    public void processMicroinvestReturns(LocalDate from, LocalDate to, int chunkDays) {
         String batchId = "microinvest-returns-" + System.currentTimeMillis();
         Synchronization sync = synchronizationService.createSync(Platform.Microinvest);
 
-        SyncLog syncLog = syncLogService.startSync(
-                Platform.Microinvest,
-                SyncDirection.INBOUND,
-                SyncOperation.RETURNS,
-                sync,
-                batchId
-        );
-
-        int processedItems = 0;
-        int successfulItems = 0;
-        int failedItems = 0;
-
         try {
-            Optional<List<OperationDto>> returnsOpt = fetchOperationsFromMicroinvestApi(STORNO_OPERATION_TYPE, from, to);
-
-            if (returnsOpt.isEmpty() || returnsOpt.get().isEmpty()) {
-                log.info("No Microinvest returns found for period {} to {}", from, to);
-                syncLogService.completeSync(syncLog.getId(), 0, 0, 0, "No returns found for the specified period");
-                return;
-            }
-
-            List<OperationDto> returns = returnsOpt.get();
-            log.info("Processing {} Microinvest returns", returns.size());
-
-            for (OperationDto operation : returns) {
-                processedItems++;
-                try {
-                    productService.increaseAvailabilityByReturn(operation.getGoodId(), operation.getQuantity());
-                    productService.setSync(operation.getGoodId(), sync);
-                    successfulItems++;
-
-                    log.debug("Processed return for product {}: {} units", operation.getGoodId(), operation.getQuantity());
-
-                    // Update progress every 10 items
-                    if (processedItems % 10 == 0) {
-                        syncLogService.updateProgress(
-                                syncLog.getId(),
-                                processedItems,
-                                successfulItems,
-                                failedItems,
-                                String.format("Processed %d/%d Microinvest returns", processedItems, returns.size())
-                        );
-                    }
-
-                } catch (Exception e) {
-                    failedItems++;
-                    log.error("Failed to process Microinvest return for product {}: {}",
-                            operation.getGoodId(), e.getMessage(), e);
-                }
-            }
-
-            String details = String.format("Processed Microinvest returns from %s to %s", from, to);
-            syncLogService.completeSync(syncLog.getId(), processedItems, successfulItems, failedItems, details);
-
-            log.info("Microinvest returns processing completed: {} total, {} successful, {} failed",
-                    processedItems, successfulItems, failedItems);
-
+            connectorSyncEngine.run(new OperationsConnector(SyncOperation.RETURNS, STORNO_OPERATION_TYPE, from, to,
+                    Math.max(1, chunkDays)), sync, batchId);
         } catch (Exception e) {
             log.error("Failed to process Microinvest returns", e);
-            syncLogService.failSync(syncLog.getId(), e.getMessage(), processedItems, successfulItems, failedItems);
         }
     }
 
+    /**
+     * Record a delivery in the outbox; the outbox relay sends it to Microinvest
+     */
     public void processDeliveryToMicroinvestApi(String productId, Integer quantity) {
-        boolean success = false;
-        String errorMessage = null;
+        microinvestOutboxService.enqueue(createDeliveryRequest(productId, quantity));
+        log.info("Queued delivery operation for product {} with quantity {}", productId, quantity);
+    }
 
-        try {
-            OperationDto request = createDeliveryRequest(productId, quantity);
-            createMicroinvestApiOperation(List.of(request)).block();
-            success = true;
-            log.info("Successfully created delivery operation for product {} with quantity {}", productId, quantity);
-        } catch (Exception e) {
-            errorMessage = e.getMessage();
-            log.error("Failed to create delivery operation for product {}: {}", productId, e.getMessage(), e);
-        }
+    /**
+     * Record a sale in the outbox; the outbox relay sends it to Microinvest
+     */
+    public void processSaleToMicroinvestApi(String productId, Integer quantity) {
+        microinvestOutboxService.enqueue(createSaleRequest(productId, quantity));
+        log.info("Queued sale operation for product {} with quantity {}", productId, quantity);
+    }
 
-        // Log the delivery operation
-        syncLogService.logSingleOperation(
-                Platform.Microinvest,
-                SyncDirection.OUTBOUND,
-                SyncOperation.STOCK_UPDATE,
-                null,
-                success,
-                String.format("Delivery operation for product %s, quantity %d", productId, quantity),
-                errorMessage
-        );
+    /**
+     * Queue an operation for the next POST /operation batch
+     * @return completes with the operation as created by Microinvest
+     */
+    public CompletableFuture<OperationDto> submitOperation(OperationDto operation) {
+        return operationBatcher.submit(operation);
     }
 
-    public void processSaleToMicroinvestApi(String productId, Integer quantity) {
-        boolean success = false;
+    @PreDestroy
+    public void shutdown() {
+        operationBatcher.close();
+    }
+
+    /**
+     * Send a batch of queued operations as one request and log it as one entry. When Microinvest
+     * rejects the batch with a 4xx, nothing was created, so its operations are retried one by one
+     * and a single bad operation only fails its own caller. Any other failure, such as a timeout
+     * or a 5xx, may come after some operations were created, so it fails the whole batch and the
+     * caller decides about retrying.
+     */
+    private void sendOperations(List<MicroBatcher.Request<OperationDto, OperationDto>> batch) {
+        LocalDateTime started = LocalDateTime.now();
+        List<OperationDto> operations = batch.stream().map(MicroBatcher.Request::item).toList();
+        int successful = 0;
         String errorMessage = null;
 
         try {
-            OperationDto request = createSaleRequest(productId, quantity);
-            createMicroinvestApiOperation(List.of(request)).block();
-            success = true;
-            log.info("Successfully created sale operation for product {} with quantity {}", productId, quantity);
+            List<OperationDto> created = createMicroinvestApiOperation(operations).block();
+            for (int i = 0; i < batch.size(); i++) {
+                // Created operations come back in request order; fall back to the request otherwise
+                batch.get(i).result().complete(created != null && created.size() == batch.size()
+                        ? created.get(i) : operations.get(i));
+            }
+            successful = batch.size();
         } catch (Exception e) {
             errorMessage = e.getMessage();
-            log.error("Failed to create sale operation for product {}: {}", productId, e.getMessage(), e);
+            if (batch.size() > 1 && isRejected(e)) {
+                log.warn("Microinvest rejected a batch of {} operations, sending them one by one: {}",
+                        batch.size(), e.getMessage());
+                for (MicroBatcher.Request<OperationDto, OperationDto> request : batch) {
+                    try {
+                        List<OperationDto> created = createMicroinvestApiOperation(List.of(request.item())).block();
+                        request.result().complete(created != null && created.size() == 1
+                                ? created.get(0) : request.item());
+                        successful++;
+                    } catch (Exception single) {
+                        request.result().completeExceptionally(single);
+                    }
+                }
+            } else {
+                log.error("Failed to send {} operations to Microinvest: {}", batch.size(), e.getMessage());
+                batch.forEach(request -> request.result().completeExceptionally(e));
+            }
+        }
+
+        long sales = operations.stream().filter(op -> SALE_OPERATION_TYPE.equals(op.getOperationType())).count();
+        StringBuilder details = new StringBuilder(String.format("Sent %d operations (%d sales, %d deliveries):",
+                operations.size(), sales, operations.size() - sales));
+        operations.stream()
+                .limit(MAX_LOGGED_OPERATIONS)
+                .forEach(op -> details.append(' ').append(op.getGoodId()).append('x').append(op.getQuantity()));
+        if (operations.size() > MAX_LOGGED_OPERATIONS) {
+            details.append(" ...");
         }
 
-        // Log the sale operation
-        syncLogService.logSingleOperation(
+        syncLogService.logBatchOperation(
                 Platform.Microinvest,
                 SyncDirection.OUTBOUND,
-                SyncOperation.ORDERS,
-                null,
-                success,
-                String.format("Sale operation for product %s, quantity %d", productId, quantity),
+                sales == operations.size() ? SyncOperation.ORDERS : SyncOperation.STOCK_UPDATE,
+                "microinvest-operations-" + System.currentTimeMillis(),
+                started,
+                successful,
+                batch.size() - successful,
+                details.toString(),
                 errorMessage
         );
     }
 
-    public List<ItemDto> fetchAllItemsFromMicroinvestApi() {
+    /**
+     * Import every Microinvest item as a product, streaming pages straight to the database
+     * @param collect also return the fetched items; off by default so memory stays flat
+     */
+    public List<ItemDto> fetchAllItemsFromMicroinvestApi(boolean collect) {
         String batchId = "microinvest-items-import-" + System.currentTimeMillis();
 
         SyncLog syncLog = syncLogService.startSync(
@@ -259,77 +285,75 @@ public class MicroinvestService {
         int processedItems = 0;
         int successfulItems = 0;
         int failedItems = 0;
+        int insertedItems = 0;
+        int updatedItems = 0;
 
         try {
-            String url = "/items";
-            int page = 1;
-            int pageSize = 500;
-            final int[] totalPages = {Integer.MAX_VALUE};
-
-            log.info("Starting Microinvest items import");
-
-            while (page <= totalPages[0]) {
-                int currentPage = page;
-
-                try {
-                    List<ItemDto> pageResult = webClient.get()
-                            .uri(uriBuilder -> uriBuilder
-                                    .path(url)
-                                    .queryParam("page", currentPage)
-                                    .queryParam("page_size", pageSize)
-                                    .build())
-                            .exchangeToMono(response -> {
-                                HttpHeaders headers = response.headers().asHttpHeaders();
-                                String totalPagesHeader = headers.getFirst("X-TotalPages");
-
-                                if (totalPagesHeader != null) {
-                                    try {
-                                        totalPages[0] = Integer.parseInt(totalPagesHeader);
-                                    } catch (NumberFormatException e) {
-                                        log.warn("Invalid X-TotalPages header: {}", totalPagesHeader);
-                                        totalPages[0] = 1;
-                                    }
-                                }
-
-                                return response.bodyToMono(new ParameterizedTypeReference<List<ItemDto>>() {});
-                            })
-                            .doOnError(e -> log.error("Error fetching items from page {}: {}", currentPage, e.getMessage()))
-                            .onErrorReturn(List.of())
-                            .block();
-
-                    if (pageResult == null || pageResult.isEmpty()) {
-                        break;
+            // Resume after the last committed page of an interrupted import
+            SyncCheckpoint checkpoint = syncCheckpointService.open(
+                    Platform.Microinvest, SyncOperation.PRODUCT_IMPORT, "all-items-page-size-" + importPageSize);
+            int firstPage = checkpoint.getLastPage() + 1;
+            int pages = 0;
+            boolean contiguous = true;
+
+            log.info("Starting Microinvest items import from page {}", firstPage);
+
+            try (Stream<MicroinvestPage<ItemDto>> stream = fetchPages("/items", firstPage, ItemDto.class).toStream(1)) {
+                Iterator<MicroinvestPage<ItemDto>> iterator = stream.iterator();
+                while (iterator.hasNext()) {
+                    MicroinvestPage<ItemDto> page = iterator.next();
+                    pages++;
+
+                    if (page.error() != null) {
+                        log.error("Error fetching items from page {}: {}", page.page(), page.error().getMessage());
+                        failedItems++;
+                        contiguous = false;
+                        continue;
                     }
 
-                    // Process items from this page
-                    int pageSuccessful = fillAllItemsInDb(pageResult);
-                    processedItems += pageResult.size();
-                    successfulItems += pageSuccessful;
-                    failedItems += (pageResult.size() - pageSuccessful);
+                    List<ItemDto> pageResult = page.rows();
+                    try {
+                        // The checkpoint only moves while no page has been skipped
+                        ProductService.ImportResult result = contiguous
+                                ? syncCheckpointService.commitPage(checkpoint, page.page(), null, () -> fillAllItemsInDb(pageResult))
+                                : fillAllItemsInDb(pageResult);
+                        int pageSuccessful = result.inserted() + result.updated() + result.unchanged();
+                        insertedItems += result.inserted();
+                        updatedItems += result.updated();
+                        processedItems += pageResult.size();
+                        successfulItems += pageSuccessful;
+                        failedItems += (pageResult.size() - pageSuccessful);
+                    } catch (Exception e) {
+                        log.error("Failed to process page {}: {}", page.page(), e.getMessage(), e);
+                        failedItems++;
+                        contiguous = false;
+                    }
 
-                    allItems.addAll(pageResult);
+                    if (collect) {
+                        allItems.addAll(pageResult);
+                    }
 
-                    log.info("Fetched page {} with {} items", currentPage, pageResult.size());
+                    log.info("Fetched page {} with {} items", page.page(), pageResult.size());
 
-                    // Update progress
                     syncLogService.updateProgress(
                             syncLog.getId(),
                             processedItems,
                             successfulItems,
                             failedItems,
-                            String.format("Imported page %d/%d with %d items", currentPage, totalPages[0], pageResult.size())
+                            String.format("Imported page %d/%s with %d items", page.page(), page.totalLabel(), pageResult.size())
                     );
-
-                    page++;
-
-                } catch (Exception e) {
-                    log.error("Failed to process page {}: {}", currentPage, e.getMessage(), e);
-                    failedItems++;
-                    page++;
                 }
             }
 
-            String details = String.format("Imported %d pages with %d total items", page - 1, processedItems);
+            if (contiguous) {
+                syncCheckpointService.complete(checkpoint);
+            }
+
+            String details = String.format("Imported %d pages with %d total items (%d new, %d updated, %d unchanged)",
+                    pages, processedItems, insertedItems, updatedItems, successfulItems - insertedItems - updatedItems);
+            if (firstPage > 1) {
+                details += String.format(", resumed from page %d", firstPage);
+            }
             syncLogService.completeSync(syncLog.getId(), processedItems, successfulItems, failedItems, details);
 
             log.info("Microinvest items import completed: {} total items, {} successful, {} failed",
@@ -344,124 +368,235 @@ public class MicroinvestService {
     }
 
     /**
-     * Fetch all store quantities from Microinvest API with pagination
-     * @return List of all store DTOs containing stock quantities
+     * Reconcile Product.stock with the weighted Microinvest store quantities of all locations.
+     * Every row is kept per location (see {@link LocationStockService}) and its weighted quantity
+     * is summed per good id into a primitive map while the pages stream in; then every product
+     * is diffed against it in one pass and only the drifted ones are written, as one batch.
+     * Products without a row at a weighted location are left alone. Nothing is written when a
+     * page failed, as a good whose rows were on that page would show a partial quantity.
+     * @param apply write the store quantity to drifted products; otherwise only report them
      */
-    public List<StoreDto> fetchAllStoreQuantitiesFromMicroinvestApi() {
-        String batchId = "microinvest-store-import-" + System.currentTimeMillis();
+    public StockDriftReport reconcileStoreQuantities(boolean apply) {
+        String batchId = "microinvest-store-reconciliation-" + System.currentTimeMillis();
 
         SyncLog syncLog = syncLogService.startSync(
                 Platform.Microinvest,
                 SyncDirection.INBOUND,
-                SyncOperation.STOCK_UPDATE,
+                apply ? SyncOperation.STOCK_UPDATE : SyncOperation.RECONCILIATION,
                 null,
                 batchId
         );
 
-        List<StoreDto> allStoreItems = new ArrayList<>();
-        int processedItems = 0;
-        int successfulItems = 0;
-        int failedItems = 0;
+        int storeRows = 0;
+        int failedPages = 0;
 
         try {
-            String url = "/Store";
-            int page = 1;
-            int pageSize = 500;
-            final int[] totalPages = {Integer.MAX_VALUE};
+            log.info("Starting Microinvest store reconciliation");
+            StockSnapshot snapshot = productJdbcRepository.loadStockSnapshot();
+            // Weighted quantities in percent units, divided by 100 once summed
+            LongIntHashMap storeQuantities = new LongIntHashMap(snapshot.size());
+            LocationStockService.Pass locationPass = locationStockService.startPass();
+            int skippedRows = 0;
+
+            try (Stream<MicroinvestPage<StoreDto>> stream = fetchPages("/Store", 1, StoreDto.class).toStream(1)) {
+                Iterator<MicroinvestPage<StoreDto>> iterator = stream.iterator();
+                while (iterator.hasNext()) {
+                    MicroinvestPage<StoreDto> page = iterator.next();
 
-            log.info("Starting Microinvest store quantities import");
-
-            while (page <= totalPages[0]) {
-                int currentPage = page;
-
-                try {
-                    List<StoreDto> pageResult = webClient.get()
-                            .uri(uriBuilder -> uriBuilder
-                                    .path(url)
-                                    .queryParam("page", currentPage)
-                                    .queryParam("page_size", pageSize)
-                                    .build())
-                            .exchangeToMono(response -> {
-                                HttpHeaders headers = response.headers().asHttpHeaders();
-                                String totalPagesHeader = headers.getFirst("X-TotalPages");
-
-                                if (totalPagesHeader != null) {
-                                    try {
-                                        totalPages[0] = Integer.parseInt(totalPagesHeader);
-                                    } catch (NumberFormatException e) {
-                                        log.warn("Invalid X-TotalPages header: {}", totalPagesHeader);
-                                        totalPages[0] = 1;
-                                    }
-                                }
-
-                                return response.bodyToMono(new ParameterizedTypeReference<List<StoreDto>>() {});
-                            })
-                            .doOnError(e -> log.error("Error fetching store data from page {}: {}", currentPage, e.getMessage()))
-                            .onErrorReturn(List.of())
-                            .block();
-
-                    if (pageResult == null || pageResult.isEmpty()) {
-                        log.info("No more store data found on page {}, stopping", currentPage);
-                        break;
+                    // Continue to next page even if current page fails
+                    if (page.error() != null) {
+                        log.error("Failed to process store page {}: {}", page.page(), page.error().getMessage());
+                        failedPages++;
+                        continue;
                     }
 
-                    // Filter items with quantity > 0 if needed (optional)
-                    List<StoreDto> nonZeroStock = pageResult.stream()
-                            .filter(store -> store.getQuantity() != null && store.getQuantity() > 0)
-                            .toList();
-
-                    processedItems += pageResult.size();
-                    successfulItems += pageResult.size();
-
-                    allStoreItems.addAll(pageResult);
-
-                    log.info("Fetched page {} with {} store items ({} with stock > 0)",
-                            currentPage, pageResult.size(), nonZeroStock.size());
+                    for (StoreDto row : page.rows()) {
+                        storeRows++;
+                        long goodId = parseGoodId(row.getGoodId());
+                        if (goodId < 0 || row.getObjectId() == null) {
+                            skippedRows++;
+                            continue;
+                        }
+                        int quantity = row.getQuantity() != null ? row.getQuantity() : 0;
+                        String productId = Long.toString(goodId);
+                        if (snapshot.indexOf(productId) >= 0) {
+                            locationPass.add(productId, row.getObjectId(), quantity);
+                        }
+                        int weight = locationStockService.weightOf(row.getObjectId());
+                        if (weight > 0) {
+                            storeQuantities.addTo(goodId, quantity * weight);
+                        }
+                    }
+                    locationPass.flushPage();
 
-                    // Update progress
                     syncLogService.updateProgress(
                             syncLog.getId(),
-                            processedItems,
-                            successfulItems,
-                            failedItems,
-                            String.format("Imported page %d/%d with %d store items",
-                                    currentPage, totalPages[0], pageResult.size())
+                            storeRows,
+                            0,
+                            failedPages,
+                            String.format("Read page %d/%s (%d store rows so far)",
+                                    page.page(), page.totalLabel(), storeRows)
                     );
-
-                    page++;
-
-                } catch (Exception e) {
-                    log.error("Failed to process store page {}: {}", currentPage, e.getMessage(), e);
-                    failedItems++;
-                    page++;
-
-                    // Continue to next page even if current page fails
-                    if (page > totalPages[0]) {
-                        break;
-                    }
                 }
             }
 
-            String details = String.format("Imported %d pages with %d total store items",
-                    page - 1, processedItems);
-            syncLogService.completeSync(syncLog.getId(), processedItems, successfulItems, failedItems, details);
+            int aggregatesChanged = locationPass.finish(failedPages == 0);
+
+            List<ProductJdbcRepository.StockChange> changes = new ArrayList<>();
+            int checked = 0;
+            int matched = 0;
+            int notInStore = 0;
+            for (int i = 0; i < snapshot.size(); i++) {
+                long goodId = parseGoodId(snapshot.idAt(i));
+                int weighted = goodId < 0 ? NOT_IN_STORE : storeQuantities.get(goodId, NOT_IN_STORE);
+                if (weighted == NOT_IN_STORE) {
+                    notInStore++;
+                    continue;
+                }
+                int storeQuantity = weighted / 100;
+                checked++;
+                int ourStock = snapshot.stockAt(i);
+                if (ourStock == storeQuantity) {
+                    matched++;
+                } else {
+                    changes.add(new ProductJdbcRepository.StockChange(snapshot.idAt(i), ourStock, storeQuantity));
+                }
+            }
+            int unknownGoods = storeQuantities.size() - checked;
 
-            log.info("Microinvest store quantities import completed: {} total items, {} successful, {} failed",
-                    processedItems, successfulItems, failedItems);
+            int applied = 0;
+            if (apply && !changes.isEmpty()) {
+                if (failedPages > 0) {
+                    log.warn("Not applying {} Microinvest stock corrections, {} store pages failed",
+                            changes.size(), failedPages);
+                } else {
+                    Synchronization sync = synchronizationService.createSync(Platform.Microinvest);
+                    applied = productService.setStocks(changes, sync).size();
+                }
+            }
 
-            // Log summary of non-zero stock items
-            long nonZeroStockCount = allStoreItems.stream()
-                    .filter(store -> store.getQuantity() != null && store.getQuantity() > 0)
-                    .count();
+            StockDriftReport report = new StockDriftReport();
+            report.setPlatform(Platform.Microinvest);
+            report.setChecked(checked);
+            report.setMatched(matched);
+            report.setMismatched(changes.size());
+            report.setUnknownProducts(unknownGoods);
+            report.setCorrectionsQueued(applied);
+            report.setTruncated(changes.size() > maxReportedDrifts);
+            changes.stream()
+                    .limit(maxReportedDrifts)
+                    .forEach(change -> report.getDrifts().add(new StockDriftReport.Drift(
+                            change.id(), change.newStock(), change.expectedStock())));
+
+            StringBuilder details = new StringBuilder(String.format(
+                    "Read %d store rows (%d failed pages, %d invalid rows), %d location aggregates changed; " +
+                            "checked %d products: %d matched, %d drifted, %d applied, %d goods without product, " +
+                            "%d products not in store",
+                    storeRows, failedPages, skippedRows, aggregatesChanged, checked, matched, changes.size(), applied,
+                    unknownGoods, notInStore));
+            for (StockDriftReport.Drift drift : report.getDrifts()) {
+                details.append("; ").append(drift.getProductId())
+                        .append(' ').append(drift.getOurStock())
+                        .append("->").append(drift.getChannelStock());
+            }
+            if (report.isTruncated()) {
+                details.append("; ...");
+            }
+            syncLogService.completeSync(syncLog.getId(), checked, matched, changes.size(), details.toString());
 
-            log.info("Total store items with stock > 0: {}", nonZeroStockCount);
+            log.info("Microinvest store reconciliation completed: {} products checked, {} drifted, {} applied, " +
+                    "{} goods without product, {} failed pages", checked, changes.size(), applied, unknownGoods, failedPages);
+            return report;
 
         } catch (Exception e) {
-            log.error("Failed to import Microinvest store quantities", e);
-            syncLogService.failSync(syncLog.getId(), e.getMessage(), processedItems, successfulItems, failedItems);
+            log.error("Failed to reconcile Microinvest store quantities", e);
+            syncLogService.failSync(syncLog.getId(), e.getMessage(), storeRows, 0, failedPages);
+            throw new RuntimeException("Failed to reconcile Microinvest store quantities: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Microinvest good ids are plain decimal numbers; anything else, including leading zeros
+     * that would collide with another id, gives -1
+     */
+    private static long parseGoodId(String goodId) {
+        if (goodId == null || goodId.isEmpty() || goodId.length() > 18
+                || (goodId.length() > 1 && goodId.charAt(0) == '0')) {
+            return -1;
         }
+        long value = 0;
+        for (int i = 0; i < goodId.length(); i++) {
+            char c = goodId.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
 
-        return allStoreItems;
+    /**
+     * Pages of a paged Microinvest endpoint from startPage on, in page order. The first page is
+     * fetched alone to read X-TotalPages, then the rest with up to importConcurrency requests in
+     * flight, so no more than that many pages are held in memory whatever the catalog size.
+     * A page that fails to download is emitted with its error instead of ending the stream.
+     */
+    private <T> Flux<MicroinvestPage<T>> fetchPages(String path, int startPage, Class<T> type) {
+        return fetchPages(path, null, startPage, type);
+    }
+
+    /**
+     * @param objectId only rows of this location; null for all
+     */
+    private <T> Flux<MicroinvestPage<T>> fetchPages(String path, Long objectId, int startPage, Class<T> type) {
+        return fetchPage(path, objectId, startPage, type).flatMapMany(first -> {
+            Flux<MicroinvestPage<T>> rest;
+            if (first.totalPages() == UNKNOWN_TOTAL_PAGES) {
+                // Without a page count the only end marker is an empty page, so read on one by one
+                rest = first.rows().isEmpty() ? Flux.empty() : Flux.range(startPage + 1, Integer.MAX_VALUE - startPage - 1)
+                        .concatMap(page -> fetchPage(path, objectId, page, type)
+                                .onErrorResume(e -> Mono.just(MicroinvestPage.failed(page, e))))
+                        .takeUntil(page -> page.error() != null || page.rows().isEmpty());
+            } else {
+                rest = Flux.range(startPage + 1, Math.max(0, first.totalPages() - startPage))
+                        .flatMapSequential(page -> fetchPage(path, objectId, page, type)
+                                        .onErrorResume(e -> Mono.just(MicroinvestPage.failed(page, e))),
+                                importConcurrency, 1);
+            }
+            return Flux.concat(Mono.just(first), rest);
+        });
+    }
+
+    private <T> Mono<MicroinvestPage<T>> fetchPage(String path, Long objectId, int page, Class<T> type) {
+        return webClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path(path)
+                        .queryParamIfPresent("object_id", Optional.ofNullable(objectId))
+                        .queryParam("page", page)
+                        .queryParam("page_size", importPageSize)
+                        .build())
+                .exchangeToMono(response -> {
+                    if (!response.statusCode().is2xxSuccessful()) {
+                        return response.<MicroinvestPage<T>>createError();
+                    }
+                    int totalPages = parseTotalPages(response.headers().asHttpHeaders().getFirst("X-TotalPages"));
+                    // Rows are decoded one by one as the array streams in; only the page of DTOs is kept
+                    return response.bodyToFlux(type)
+                            .collectList()
+                            .map(rows -> new MicroinvestPage<>(page, totalPages, rows, null));
+                });
+    }
+
+    private static int parseTotalPages(String totalPagesHeader) {
+        if (totalPagesHeader == null) {
+            return UNKNOWN_TOTAL_PAGES;
+        }
+        try {
+            return Integer.parseInt(totalPagesHeader);
+        } catch (NumberFormatException e) {
+            log.warn("Invalid X-TotalPages header: {}", totalPagesHeader);
+            return 1;
+        }
     }
 
     /**
@@ -473,14 +608,8 @@ public class MicroinvestService {
         log.info("Fetching store quantities for location: {}", objectId);
 
         try {
-            List<StoreDto> storeItems = webClient.get()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/Store")
-                            .queryParam("object_id", objectId)
-                            .queryParam("page_size", 2000) // Larger page size for single location
-                            .build())
-                    .retrieve()
-                    .bodyToMono(new ParameterizedTypeReference<List<StoreDto>>() {})
+            List<StoreDto> storeItems = streamStoreQuantitiesByLocation(objectId)
+                    .collectList()
                     .doOnNext(result -> log.info("Fetched {} store items for location {}", result.size(), objectId))
                     .doOnError(error -> log.error("Error fetching store data for location {}: {}", objectId, error.getMessage()))
                     .onErrorReturn(List.of())
@@ -503,6 +632,21 @@ public class MicroinvestService {
         }
     }
 
+    /**
+     * Store rows of a location, emitted as they are decoded from the response
+     * @param objectId The location/object ID to filter by
+     */
+    public Flux<StoreDto> streamStoreQuantitiesByLocation(Long objectId) {
+        return webClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/Store")
+                        .queryParam("object_id", objectId)
+                        .queryParam("page_size", 2000) // Larger page size for single location
+                        .build())
+                .retrieve()
+                .bodyToFlux(StoreDto.class);
+    }
+
     /**
      * Get store quantity for specific product at specific location
      * @param goodId Product ID
@@ -510,37 +654,136 @@ public class MicroinvestService {
      * @return Store DTO or null if not found
      */
     public Optional<StoreDto> fetchStoreQuantityForProduct(String goodId, Long objectId) {
-        log.debug("Fetching store quantity for product {} at location {}", goodId, objectId);
+        StoreDto storeItem = fetchStoreQuantitiesForProducts(List.of(goodId), objectId).get(goodId);
+        if (storeItem == null) {
+            log.debug("No store data found for product {} at location {}", goodId, objectId);
+        }
+        return Optional.ofNullable(storeItem);
+    }
 
+    /**
+     * Store rows of many goods at one location. They are served from a snapshot of the whole
+     * location that one paged /Store?object_id= fetch fills and keeps for microinvest.store-cache.ttl-ms;
+     * concurrent callers share that fetch. If the snapshot cannot be loaded, the goods are requested
+     * individually, a few at a time, and concurrent callers asking for the same good share one request.
+     * /Store filters on a single good_id value, so that fallback costs one request per good and is only
+     * taken for up to microinvest.store-cache.fallback-max-goods goods; larger lookups fail instead.
+     * @return store row per requested good id; goods without a row are absent
+     */
+    public Map<String, StoreDto> fetchStoreQuantitiesForProducts(Collection<String> goodIds, Long objectId) {
+        if (goodIds.isEmpty()) {
+            return Map.of();
+        }
         try {
-            List<StoreDto> storeItems = webClient.get()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/Store")
-                            .queryParam("good_id", goodId)
-                            .queryParam("object_id", objectId)
-                            .build())
-                    .retrieve()
-                    .bodyToMono(new ParameterizedTypeReference<List<StoreDto>>() {})
-                    .doOnError(error -> log.error("Error fetching store data for product {} at location {}: {}",
-                            goodId, objectId, error.getMessage()))
-                    .onErrorReturn(List.of())
-                    .block();
+            Map<String, StoreDto> snapshot = locationSnapshot(objectId).join();
+            Map<String, StoreDto> result = new HashMap<>();
+            for (String goodId : goodIds) {
+                StoreDto row = snapshot.get(goodId);
+                if (row != null) {
+                    result.put(goodId, row);
+                }
+            }
+            return result;
+        } catch (CompletionException e) {
+            if (goodIds.size() > storeFallbackMaxGoods) {
+                throw new IllegalStateException(String.format(
+                        "Store snapshot of location %d unavailable and %d goods exceed the per-good fallback limit of %d",
+                        objectId, goodIds.size(), storeFallbackMaxGoods), e.getCause() != null ? e.getCause() : e);
+            }
+            log.warn("Store snapshot of location {} unavailable, requesting {} goods one by one: {}",
+                    objectId, goodIds.size(), e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            return requestStoreQuantities(goodIds, objectId);
+        }
+    }
 
-            if (storeItems != null && !storeItems.isEmpty()) {
-                StoreDto storeItem = storeItems.get(0);
-                log.debug("Found product {} at location {} with quantity {}",
-                        goodId, objectId, storeItem.getQuantity());
-                return Optional.of(storeItem);
+    private CompletableFuture<Map<String, StoreDto>> locationSnapshot(Long objectId) {
+        long now = System.currentTimeMillis();
+        return storeSnapshots.compute(objectId, (key, cached) -> {
+            if (cached != null && (!cached.rows().isDone()
+                    || (!cached.rows().isCompletedExceptionally() && now - cached.requestedAt() < storeCacheTtlMs))) {
+                return cached;
             }
+            return new CachedLocation(loadLocationSnapshot(key), now);
+        }).rows();
+    }
 
-            log.debug("No store data found for product {} at location {}", goodId, objectId);
-            return Optional.empty();
+    private CompletableFuture<Map<String, StoreDto>> loadLocationSnapshot(Long objectId) {
+        return fetchPages("/Store", objectId, 1, StoreDto.class)
+                .handle((MicroinvestPage<StoreDto> page, SynchronousSink<StoreDto> sink) -> {
+                    // A missing page would make its goods look out of stock, so the snapshot fails instead
+                    if (page.error() != null) {
+                        sink.error(page.error());
+                    } else {
+                        page.rows().forEach(sink::next);
+                    }
+                })
+                .filter(row -> row.getGoodId() != null)
+                .collect(HashMap<String, StoreDto>::new,
+                        (rows, row) -> rows.merge(row.getGoodId(), row, MicroinvestService::combineStoreRows))
+                .doOnNext(rows -> log.info("Cached {} store rows of location {}", rows.size(), objectId))
+                .map(rows -> (Map<String, StoreDto>) rows)
+                .toFuture();
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to fetch store quantity for product {} at location {}: {}",
-                    goodId, objectId, e.getMessage(), e);
-            return Optional.empty();
+    private Map<String, StoreDto> requestStoreQuantities(Collection<String> goodIds, Long objectId) {
+        Map<String, StoreDto> result = Flux.fromIterable(new LinkedHashSet<>(goodIds))
+                .flatMap(goodId -> sharedStoreRequest(goodId, objectId)
+                                .flatMap(row -> Mono.justOrEmpty(row.map(found -> Map.entry(goodId, found)))),
+                        importConcurrency)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .block();
+        return result != null ? result : Map.of();
+    }
+
+    private Mono<Optional<StoreDto>> sharedStoreRequest(String goodId, Long objectId) {
+        String key = objectId + ":" + goodId;
+        CompletableFuture<Optional<StoreDto>> created = new CompletableFuture<>();
+        CompletableFuture<Optional<StoreDto>> inFlight = storeRequestsInFlight.putIfAbsent(key, created);
+        if (inFlight != null) {
+            return Mono.fromFuture(inFlight, true);
         }
+
+        webClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/Store")
+                        .queryParam("good_id", goodId)
+                        .queryParam("object_id", objectId)
+                        .build())
+                .retrieve()
+                .bodyToFlux(StoreDto.class)
+                .reduce(MicroinvestService::combineStoreRows)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .doOnError(error -> log.error("Error fetching store data for product {} at location {}: {}",
+                        goodId, objectId, error.getMessage()))
+                .onErrorReturn(Optional.empty())
+                .doFinally(signal -> storeRequestsInFlight.remove(key, created))
+                .subscribe(created::complete, created::completeExceptionally);
+
+        return Mono.fromFuture(created, true);
+    }
+
+    /**
+     * A good can have several /Store rows at one location (one per batch or price), and its
+     * quantity there is their sum
+     */
+    private static StoreDto combineStoreRows(StoreDto first, StoreDto second) {
+        if (second.getQuantity() == null) {
+            return first;
+        }
+        if (first.getQuantity() == null) {
+            return second;
+        }
+        StoreDto combined = new StoreDto();
+        combined.setId(first.getId());
+        combined.setObjectId(first.getObjectId());
+        combined.setGoodId(first.getGoodId());
+        combined.setPrice(first.getPrice());
+        combined.setQuantity(first.getQuantity() + second.getQuantity());
+        return combined;
+    }
+
+    private record CachedLocation(CompletableFuture<Map<String, StoreDto>> rows, long requestedAt) {
     }
 
     /**
@@ -807,48 +1050,76 @@ public class MicroinvestService {
             return null;
         }
     }
-    private int fillAllItemsInDb(List<ItemDto> items) {
-        int successful = 0;
 
-        if (!items.isEmpty()) {
-            for (ItemDto item : items) {
-                try {
-                    ProductRequest productRequest = new ProductRequest();
-                    productRequest.setId(String.valueOf(item.getId()));
-                    productRequest.setName(item.getName());
-                    productRequest.setBasePrice(BigDecimal.valueOf(item.getPriceIn()));
-                    productRequest.setMicroinvestPrice(BigDecimal.valueOf(item.getPriceOut2()));
-                    productService.createProduct(productRequest);
-                    successful++;
-                } catch (Exception e) {
-                    log.error("Failed to create product for item {}: {}", item.getId(), e.getMessage());
-                }
-            }
-            log.debug("Successfully created {} out of {} products from current batch", successful, items.size());
-        } else {
+    /**
+     * Upsert a page of items in a few batched statements; unchanged items are skipped by content hash
+     */
+    private ProductService.ImportResult fillAllItemsInDb(List<ItemDto> items) {
+        if (items.isEmpty()) {
             log.warn("No items found in batch!");
+            return new ProductService.ImportResult(0, 0, 0);
+        }
+
+        List<ProductRequest> requests = new ArrayList<>(items.size());
+        Map<String, String> contentHashes = new HashMap<>(items.size() * 2);
+        for (ItemDto item : items) {
+            if (item.getName() == null || item.getName().isBlank()) {
+                log.error("Failed to create product for item {}: missing name", item.getId());
+                continue;
+            }
+            ProductRequest productRequest = new ProductRequest();
+            productRequest.setId(String.valueOf(item.getId()));
+            productRequest.setName(item.getName());
+            productRequest.setBasePrice(BigDecimal.valueOf(item.getPriceIn()));
+            productRequest.setMicroinvestPrice(BigDecimal.valueOf(item.getPriceOut2()));
+            requests.add(productRequest);
+            contentHashes.put(productRequest.getId(), contentHash(item));
         }
 
-        return successful;
+        ProductService.ImportResult result = productService.upsertImportedProducts(requests, contentHashes);
+        log.debug("Upserted batch of {} items: {} new, {} updated, {} unchanged",
+                items.size(), result.inserted(), result.updated(), result.unchanged());
+        return result;
     }
 
-    // Keep existing methods unchanged
-    public Optional<List<OperationDto>> fetchOperationsFromMicroinvestApi(Integer operationType, LocalDate fromDate, LocalDate toDate) {
-        String url = "/operations";
+    /**
+     * Hash of the item fields we import, so an unchanged item costs no write
+     */
+    private static String contentHash(ItemDto item) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            String source = item.getName() + '\u0000' + item.getPriceIn() + '\u0000' + item.getPriceOut2();
+            return HexFormat.of().formatHex(digest.digest(source.getBytes(StandardCharsets.UTF_8)), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
 
-        return webClient.get()
+    /**
+     * Operations of one type in a date range; errors propagate so callers can retry or report them
+     */
+    public List<OperationDto> fetchOperations(Integer operationType, LocalDate fromDate, LocalDate toDate) {
+        List<OperationDto> operations = webClient.get()
                 .uri(uriBuilder -> uriBuilder
-                        .path(url)
+                        .path("/operations")
                         .queryParam("operation_type", operationType)
                         .queryParam("date_from", fromDate)
                         .queryParam("date_to", toDate)
                         .build())
                 .retrieve()
-                .bodyToMono(new ParameterizedTypeReference<List<OperationDto>>() {})
-                .doOnNext(result -> log.info("Fetched {} operations from Microinvest (type={})", result.size(), operationType))
-                .doOnError(error -> log.error("Error fetching Microinvest operations: {}", error.getMessage()))
-                .onErrorReturn(List.of())
-                .blockOptional();
+                .bodyToFlux(OperationDto.class)
+                .collectList()
+                .block();
+        log.info("Fetched {} operations from Microinvest (type={}, {}..{})",
+                operations != null ? operations.size() : 0, operationType, fromDate, toDate);
+        return operations != null ? operations : List.of();
+    }
+
+    /**
+     * Whether Microinvest answered with a 4xx, so the request was refused without creating anything
+     */
+    static boolean isRejected(Throwable e) {
+        return e instanceof WebClientResponseException response && response.getStatusCode().is4xxClientError();
     }
 
     private Mono<List<OperationDto>> createMicroinvestApiOperation(List<OperationDto> operations) {
@@ -856,9 +1127,12 @@ public class MicroinvestService {
                 .uri("/operation")
                 .bodyValue(operations)
                 .retrieve()
+                // Keeps the status, so a rejection can be told apart from a server error
                 .onStatus(httpStatusCode -> !httpStatusCode.is2xxSuccessful(), response ->
-                        response.bodyToMono(String.class).flatMap(error ->
-                                Mono.error(new RuntimeException("Microinvest API error: " + error))
+                        response.bodyToMono(String.class).defaultIfEmpty("").flatMap(error ->
+                                Mono.error(WebClientResponseException.create(response.statusCode().value(),
+                                        "Microinvest API error: " + error, response.headers().asHttpHeaders(),
+                                        error.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8))
                         )
                 )
                 .bodyToFlux(OperationDto.class)
@@ -894,4 +1168,79 @@ public class MicroinvestService {
         operationDto.setUserId(8L);
         return operationDto;
     }
-}
\ No newline at end of file
+
+    /**
+     * Sale (orders) or storno (returns) operations for a date range. The range is split into
+     * chunks of chunkDays that the engine treats as pages: fetched in parallel, applied and
+     * checkpointed one by one in date order, so a long backfill never waits on one huge response.
+     */
+    @RequiredArgsConstructor
+    private class OperationsConnector implements MarketplaceConnector<OperationDto> {
+        private final SyncOperation operation;
+        private final Integer operationType;
+        private final LocalDate from;
+        private final LocalDate to;
+        private final int chunkDays;
+
+        @Override
+        public Platform platform() {
+            return Platform.Microinvest;
+        }
+
+        @Override
+        public SyncOperation operation() {
+            return operation;
+        }
+
+        @Override
+        public String windowKey() {
+            // Page numbers only mean the same chunks again with the same chunk size
+            return chunkCount() == 1 ? from + ".." + to : from + ".." + to + "/" + chunkDays + "d";
+        }
+
+        @Override
+        public ConnectorSettings settings() {
+            ConnectorSettings defaults = connectorSyncEngine.getDefaultSettings();
+            return new ConnectorSettings(backfillConcurrency, defaults.requestsPerSecond(),
+                    defaults.maxRetries(), defaults.backoff());
+        }
+
+        @Override
+        public ConnectorPage<OperationDto> fetchPage(int page) {
+            LocalDate chunkFrom = from.plusDays((long) (page - 1) * chunkDays);
+            LocalDate chunkTo = chunkFrom.plusDays(chunkDays - 1L);
+            if (chunkTo.isAfter(to)) {
+                chunkTo = to;
+            }
+            return new ConnectorPage<>(fetchOperations(operationType, chunkFrom, chunkTo), chunkCount());
+        }
+
+        @Override
+        public Long recordKey(OperationDto operationDto) {
+            return operationDto.getId();
+        }
+
+        @Override
+        public List<StockDelta> map(OperationDto operationDto) {
+            return List.of(operation == SyncOperation.RETURNS
+                    ? StockDelta.returned(operationDto.getGoodId(), operationDto.getQuantity())
+                    : StockDelta.sale(operationDto.getGoodId(), operationDto.getQuantity()));
+        }
+
+        private int chunkCount() {
+            long days = ChronoUnit.DAYS.between(from, to) + 1;
+            return (int) Math.max(1, (days + chunkDays - 1) / chunkDays);
+        }
+    }
+
+    private record MicroinvestPage<T>(int page, int totalPages, List<T> rows, Throwable error) {
+
+        static <T> MicroinvestPage<T> failed(int page, Throwable error) {
+            return new MicroinvestPage<>(page, UNKNOWN_TOTAL_PAGES, List.of(), error);
+        }
+
+        String totalLabel() {
+            return totalPages == UNKNOWN_TOTAL_PAGES ? "?" : String.valueOf(totalPages);
+        }
+    }
+}
@@ -7,15 +7,24 @@ import com.ludogoriesoft.sigmatherm.model.Product;
 import com.ludogoriesoft.sigmatherm.model.Synchronization;
 import com.ludogoriesoft.sigmatherm.repository.BrandRepository;
 import com.ludogoriesoft.sigmatherm.repository.PriceRepository;
+import com.ludogoriesoft.sigmatherm.repository.ProductJdbcRepository;
 import com.ludogoriesoft.sigmatherm.repository.ProductRepository;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -23,9 +32,11 @@ import java.util.List;
 public class ProductService {
 
     private final ProductRepository productRepository;
+    private final ProductJdbcRepository productJdbcRepository;
     private final PriceRepository priceRepository;
     private final BrandRepository brandRepository;
     private final ModelMapper modelMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     public ProductResponse createProduct(ProductRequest productRequest) {
         if (productRepository.existsById(productRequest.getId())) {
@@ -45,13 +56,11 @@ public class ProductService {
     }
 
     public void reduceAvailabilityByOrder(String productId, int quantityOrdered) {
-        Product product = findProductById(productId);
-        if (product != null) {
-            log.info("Product availability: {}, Order quantity: {}", product.getStock(), quantityOrdered);
-            int newAvailability = product.getStock() - Math.abs(quantityOrdered);
-            log.info("New availability: {}", newAvailability);
-            product.setStock(newAvailability);
-            productRepository.save(product);
+        // Decremented in place, so batched order deltas applied meanwhile are not overwritten
+        Integer newAvailability = productJdbcRepository.addToStock(productId, -Math.abs(quantityOrdered));
+        if (newAvailability != null) {
+            log.info("Order quantity: {}, New availability: {}", quantityOrdered, newAvailability);
+            eventPublisher.publishEvent(new StockChangedEvent(List.of(productId)));
             if (newAvailability >= 0) {
                 log.info("Availability reduced for product with id " + productId);
             } else {
@@ -63,13 +72,10 @@ public class ProductService {
     }
 
     public void increaseAvailabilityByReturn(String productId, int quantityReturned) {
-        Product product = findProductById(productId);
-        if (product != null) {
-            log.info("Product availability: {}, Order quantity: {}", product.getStock(), quantityReturned);
-            int newAvailability = product.getStock() + Math.abs(quantityReturned);
-            log.info("New availability: {}", newAvailability);
-            product.setStock(newAvailability);
-            productRepository.save(product);
+        Integer newAvailability = productJdbcRepository.addToStock(productId, Math.abs(quantityReturned));
+        if (newAvailability != null) {
+            log.info("Returned quantity: {}, New availability: {}", quantityReturned, newAvailability);
+            eventPublisher.publishEvent(new StockChangedEvent(List.of(productId)));
             log.info("Availability reduced for product with id " + productId);
 
         } else {
@@ -77,17 +83,100 @@ public class ProductService {
         }
     }
 
+    /**
+     * Apply summed stock changes per product in a single statement batch
+     * @return number of products updated; ids without a product are ignored
+     */
+    @Transactional
+    public int applyStockDeltas(Map<String, Integer> deltas, Synchronization synchronization) {
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+        int updated = productJdbcRepository.applyStockDeltas(deltas, synchronization != null ? synchronization.getId() : null);
+        eventPublisher.publishEvent(new StockChangedEvent(List.copyOf(deltas.keySet())));
+        return updated;
+    }
+
+    /**
+     * Apply the summed line items of one order with a single statement batch, stamping the
+     * synchronization on the same rows
+     * @return ids of the products that exist and were updated
+     */
+    @Transactional
+    public Set<String> applyOrderDeltas(Map<String, Integer> deltas, Synchronization synchronization) {
+        if (deltas.isEmpty()) {
+            return Set.of();
+        }
+        List<String> updated = productJdbcRepository.addToStocks(deltas, synchronization != null ? synchronization.getId() : null);
+        if (!updated.isEmpty()) {
+            eventPublisher.publishEvent(new StockChangedEvent(updated));
+        }
+        return new HashSet<>(updated);
+    }
+
+    /**
+     * Overwrite the stock of drifted products with the values of an external source of truth
+     * @return ids of the products that were updated; a product whose stock moved since the
+     * change was computed is left for the next run
+     */
+    @Transactional
+    public List<String> setStocks(List<ProductJdbcRepository.StockChange> changes, Synchronization synchronization) {
+        if (changes.isEmpty()) {
+            return List.of();
+        }
+        List<String> updated = productJdbcRepository.setStocks(changes, synchronization != null ? synchronization.getId() : null);
+        if (!updated.isEmpty()) {
+            eventPublisher.publishEvent(new StockChangedEvent(updated));
+        }
+        return updated;
+    }
+
+    /**
+     * Bulk upsert of externally imported products, skipping rows whose content hash is unchanged.
+     * New products start with stock 1000; the stock of existing products is never overwritten.
+     */
+    @Transactional
+    public ImportResult upsertImportedProducts(List<ProductRequest> requests, Map<String, String> contentHashes) {
+        Map<String, ProductJdbcRepository.ImportState> states =
+                productJdbcRepository.findImportStates(requests.stream().map(ProductRequest::getId).toList());
+
+        List<ProductJdbcRepository.ImportedProduct> changed = new ArrayList<>();
+        int inserted = 0;
+        int updated = 0;
+        for (ProductRequest request : requests) {
+            String contentHash = contentHashes.get(request.getId());
+            ProductJdbcRepository.ImportState state = states.get(request.getId());
+            if (state != null && contentHash != null && contentHash.equals(state.contentHash())) {
+                continue;
+            }
+            UUID priceId = state != null && state.priceId() != null ? state.priceId() : UUID.randomUUID();
+            changed.add(new ProductJdbcRepository.ImportedProduct(request.getId(), request.getName(),
+                    request.getBasePrice(), request.getMicroinvestPrice(), contentHash, priceId));
+            if (state == null) {
+                inserted++;
+            } else {
+                updated++;
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            productJdbcRepository.upsertImported(changed);
+        }
+        return new ImportResult(inserted, updated, requests.size() - changed.size());
+    }
+
     public Product findProductById(String id) {
         return productRepository
                 .findById(id)
                 .orElse(null);
     }
 
+    public List<Product> findProductsByIds(Collection<String> ids) {
+        return productRepository.findAllById(ids);
+    }
+
     public void setSync(String id, Synchronization synchronization) {
-        Product product = findProductById(id);
-        if (product != null) {
-            product.setSynchronization(synchronization);
-            productRepository.save(product);
+        if (productJdbcRepository.setSynchronization(id, synchronization != null ? synchronization.getId() : null) > 0) {
             log.info("Synchronization for product with ID: " + id);
         } else {
             log.info("No product found (with ID: " + id + " ) for synchronization");
@@ -131,4 +220,7 @@ public class ProductService {
                     .map(product -> modelMapper.map(product, ProductResponse.class));
         }
     }
+
+    public record ImportResult(int inserted, int updated, int unchanged) {
+    }
 }
@@ -0,0 +1,250 @@
+package com.ludogoriesoft.sigmatherm.service;
+
+import com.ludogoriesoft.sigmatherm.exception.ObjectNotFoundException;
+import com.ludogoriesoft.sigmatherm.model.SyncLog;
+import com.ludogoriesoft.sigmatherm.model.enums.Platform;
+import com.ludogoriesoft.sigmatherm.model.enums.SyncDirection;
+import com.ludogoriesoft.sigmatherm.model.enums.SyncOperation;
+import com.ludogoriesoft.sigmatherm.repository.SkroutzCatalogJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.ludogoriesoft.sigmatherm.repository.SkroutzCatalogJdbcRepository.ELEMENTS;
+
+/**
+ * Skroutz catalog imported from the uploaded feed, and the feed generated from it. Generation
+ * streams the catalog joined with the current stock through a cursor straight into the XML
+ * writer, so memory stays flat however many products there are.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SkroutzCatalogService {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int MPN_INDEX = ELEMENTS.indexOf("mpn");
+    private static final Map<String, Integer> ELEMENT_INDEX = new HashMap<>();
+
+    static {
+        for (int i = 0; i < ELEMENTS.size(); i++) {
+            ELEMENT_INDEX.put(ELEMENTS.get(i), i);
+        }
+    }
+
+    @Value("${skroutz.catalog.fetch-size:1000}")
+    private int fetchSize;
+
+    private final SkroutzCatalogJdbcRepository catalogRepository;
+    private final SkroutzFeedService skroutzFeedService;
+    private final SyncLogService syncLogService;
+
+    /**
+     * Replace the catalog with the products of a feed file, upserted in batches; products missing
+     * from the file are removed once the whole file was read
+     * @return number of products imported
+     */
+    public int importCatalog(Path feed) throws Exception {
+        String batchId = "skroutz-catalog-import-" + System.currentTimeMillis();
+        SyncLog syncLog = syncLogService.startSync(Platform.Skroutz, SyncDirection.INBOUND,
+                SyncOperation.PRODUCT_IMPORT, null, batchId);
+
+        LocalDateTime importedAt = LocalDateTime.now();
+        List<String[]> batch = new ArrayList<>(BATCH_SIZE);
+        int products = 0;
+        int skipped = 0;
+
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(feed))) {
+            XMLStreamReader reader = SkroutzFeedService.newInputFactory().createXMLStreamReader(in);
+            try {
+                String[] row = null;
+                int depth = 0;
+                int productDepth = 0;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        depth++;
+                        String name = reader.getLocalName();
+                        if (row == null && "product".equals(name)) {
+                            row = new String[ELEMENTS.size()];
+                            productDepth = depth;
+                        } else if (row != null && depth == productDepth + 1 && ELEMENT_INDEX.containsKey(name)) {
+                            row[ELEMENT_INDEX.get(name)] = reader.getElementText().trim();
+                            // getElementText consumed the end tag
+                            depth--;
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        if (row != null && depth == productDepth) {
+                            if (row[MPN_INDEX] == null || row[MPN_INDEX].isEmpty()) {
+                                skipped++;
+                            } else {
+                                batch.add(row);
+                                products++;
+                                if (batch.size() == BATCH_SIZE) {
+                                    catalogRepository.upsert(batch, importedAt);
+                                    batch.clear();
+                                }
+                            }
+                            row = null;
+                        }
+                        depth--;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+
+            if (products == 0) {
+                throw new IllegalArgumentException("No products with an mpn found in " + feed);
+            }
+            if (!batch.isEmpty()) {
+                catalogRepository.upsert(batch, importedAt);
+            }
+            int removed = catalogRepository.deleteImportedBefore(importedAt);
+
+            String details = String.format("Skroutz catalog imported: %d products, %d removed, %d without mpn skipped",
+                    products, removed, skipped);
+            syncLogService.completeSync(syncLog.getId(), products + skipped, products, skipped, details);
+            log.info(details);
+            return products;
+        } catch (Exception e) {
+            syncLogService.failSync(syncLog.getId(), e.getMessage(), products, 0, products);
+            throw e;
+        }
+    }
+
+    /**
+     * Apply every pending stock change to the feed in one pass, so the feed is written at most once
+     * per interval however many order lines came in. With a catalog the feed is regenerated from it
+     * through the database cursor instead of parsing and rewriting the published file; products the
+     * catalog does not list cannot change the feed and trigger nothing.
+     */
+    @Scheduled(fixedDelayString = "${skroutz.feed.flush-interval-ms:15000}",
+            initialDelayString = "${skroutz.feed.flush-interval-ms:15000}")
+    public void flushPendingStock() {
+        List<String> productIds = skroutzFeedService.drainPendingStock();
+        if (productIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            if (catalogRepository.isEmpty()) {
+                skroutzFeedService.applyStock(productIds);
+                return;
+            }
+            Set<String> listed = catalogRepository.findListed(productIds);
+            if (listed.isEmpty()) {
+                log.debug("None of {} pending Skroutz stock changes is listed in the catalog", productIds.size());
+                return;
+            }
+            generateFeed();
+        } catch (ObjectNotFoundException e) {
+            // Nothing to patch until a feed is uploaded, which carries its own quantities
+            log.warn("Dropped {} pending Skroutz stock changes: {}", productIds.size(), e.getMessage());
+        } catch (Exception e) {
+            skroutzFeedService.markPending(productIds);
+            log.error("Failed to flush {} pending Skroutz stock changes, retrying next run", productIds.size(), e);
+        }
+    }
+
+    @Scheduled(cron = "${skroutz.feed.generate-cron:-}")
+    public void generateFeedScheduled() {
+        try {
+            generateFeed();
+        } catch (Exception e) {
+            log.error("Scheduled Skroutz feed generation failed", e);
+        }
+    }
+
+    /**
+     * Render the feed from the catalog and the current stock and publish it
+     * @return number of products in the feed
+     */
+    public int generateFeed() throws Exception {
+        String batchId = "skroutz-feed-generate-" + System.currentTimeMillis();
+        SyncLog syncLog = syncLogService.startSync(Platform.Skroutz, SyncDirection.OUTBOUND,
+                SyncOperation.FEED_UPDATE, null, batchId);
+        long start = System.currentTimeMillis();
+        int[] products = {0};
+
+        try {
+            skroutzFeedService.writeFeed(out -> {
+                XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+                writer.writeStartDocument("UTF-8", "1.0");
+                writer.writeCharacters("\n");
+                writer.writeStartElement("mywebstore");
+                writeElement(writer, 1, "created_at",
+                        LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")));
+                writer.writeCharacters("\n    ");
+                writer.writeStartElement("products");
+
+                catalogRepository.forEachFeedProduct(fetchSize, rs -> {
+                    try {
+                        writer.writeCharacters("\n        ");
+                        writer.writeStartElement("product");
+                        for (int i = 0; i < ELEMENTS.size(); i++) {
+                            String value = rs.getString(i + 1);
+                            if (value != null) {
+                                writeElement(writer, 3, ELEMENTS.get(i), value);
+                            }
+                        }
+                        writeElement(writer, 3, "quantity", Integer.toString(rs.getInt(ELEMENTS.size() + 1)));
+                        writer.writeCharacters("\n        ");
+                        writer.writeEndElement();
+                    } catch (XMLStreamException e) {
+                        throw new IllegalStateException("Failed to write Skroutz feed: " + e.getMessage(), e);
+                    }
+                    products[0]++;
+                });
+
+                writer.writeCharacters("\n    ");
+                writer.writeEndElement();
+                writer.writeCharacters("\n");
+                writer.writeEndElement();
+                writer.writeCharacters("\n");
+                writer.writeEndDocument();
+                writer.flush();
+                writer.close();
+            });
+
+            if (products[0] == 0) {
+                log.warn("Generated an empty Skroutz feed; import the catalog from an uploaded feed first");
+            }
+            String details = String.format("Skroutz feed generated from the catalog: %d products in %d ms",
+                    products[0], System.currentTimeMillis() - start);
+            syncLogService.completeSync(syncLog.getId(), products[0], products[0], 0, details);
+            log.info(details);
+            return products[0];
+        } catch (Exception e) {
+            syncLogService.failSync(syncLog.getId(), e.getMessage(), products[0], 0, products[0]);
+            throw e;
+        }
+    }
+
+    private static void writeElement(XMLStreamWriter writer, int level, String name, String value)
+            throws XMLStreamException {
+        writer.writeCharacters("\n" + "    ".repeat(level));
+        writer.writeStartElement(name);
+        writer.writeCharacters(value);
+        writer.writeEndElement();
+    }
+}
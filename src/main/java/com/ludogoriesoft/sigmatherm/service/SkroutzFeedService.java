@@ -1,24 +1,58 @@
 package com.ludogoriesoft.sigmatherm.service;
 
-import com.ludogoriesoft.sigmatherm.dto.skroutz.MyWebStore;
 import com.ludogoriesoft.sigmatherm.model.Product;
 import com.ludogoriesoft.sigmatherm.model.SyncLog;
 import com.ludogoriesoft.sigmatherm.model.enums.Platform;
 import com.ludogoriesoft.sigmatherm.model.enums.SyncDirection;
 import com.ludogoriesoft.sigmatherm.model.enums.SyncOperation;
 import com.ludogoriesoft.sigmatherm.exception.ObjectNotFoundException;
-import jakarta.xml.bind.JAXBContext;
-import jakarta.xml.bind.Marshaller;
-import jakarta.xml.bind.Unmarshaller;
+import com.ludogoriesoft.sigmatherm.repository.SkroutzCatalogJdbcRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
 
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.StartDocument;
+import javax.xml.stream.events.XMLEvent;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.zip.GZIPOutputStream;
 
 @Slf4j
 @Service
@@ -26,9 +60,63 @@ import java.util.List;
 public class SkroutzFeedService {
 
     private static final String FEED_PATH = "/app/feeds/skroutz_feed.xml";
+    private static final int MAX_REPORTED_ERRORS = 20;
 
     private final SyncLogService syncLogService;
+    private final ProductService productService;
+    private final SkroutzCatalogJdbcRepository catalogRepository;
 
+    private final ReentrantLock feedLock = new ReentrantLock();
+
+    // Served copy of the published feed, reloaded when the file on disk changes
+    private final AtomicReference<FeedSnapshot> snapshot = new AtomicReference<>();
+    private final LongAdder feedRequests = new LongAdder();
+    private final LongAdder feedNotModified = new LongAdder();
+    private volatile LocalDateTime feedRequestsSince = LocalDateTime.now();
+
+    // Products whose stock changed since the last flush into the feed
+    private final Set<String> pendingStock = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Only marks the products; the feed is rewritten for all of them by the next flush.
+     * Runs after commit, so the flush reads the committed stock.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        pendingStock.addAll(event.productIds());
+    }
+
+    public void markPending(Collection<String> productIds) {
+        pendingStock.addAll(productIds);
+    }
+
+    /**
+     * Take the products marked since the last call. The caller flushes them into the feed and
+     * marks them again if that fails.
+     */
+    public List<String> drainPendingStock() {
+        List<String> productIds = new ArrayList<>(pendingStock.size());
+        for (String productId : pendingStock) {
+            if (pendingStock.remove(productId)) {
+                productIds.add(productId);
+            }
+        }
+        return productIds;
+    }
+
+    /**
+     * Patch the current stock of the given products into the published feed
+     */
+    public void applyStock(List<String> productIds) throws Exception {
+        processStockUpdateToSkroutz(Paths.get(FEED_PATH).toFile(), productService.findProductsByIds(productIds));
+    }
+
+    /**
+     * Rewrite the stock of the given products in the feed. The source is streamed with StAX and
+     * copied event by event, so memory stays flat and the cost is one pass whatever the feed size;
+     * only the quantity of products with a pending change and the feed's created_at are rewritten.
+     * The result is written to a temp file and moved over the published feed in one step.
+     */
     public void processStockUpdateToSkroutz(File sourceXmlFile, List<Product> updatedProducts) throws Exception {
         String batchId = "skroutz-feed-update-" + System.currentTimeMillis();
 
@@ -40,10 +128,11 @@ public class SkroutzFeedService {
                 batchId
         );
 
-        int totalProducts = updatedProducts.size();
-        int successfulProducts = 0;
-        int failedProducts = 0;
-        int updatedInFeed = 0;
+        Map<String, Integer> stockByMpn = new HashMap<>();
+        for (Product product : updatedProducts) {
+            stockByMpn.put(product.getId(), product.getStock());
+        }
+        int totalProducts = stockByMpn.size();
 
         try {
             // Validate source file exists
@@ -54,116 +143,536 @@ public class SkroutzFeedService {
                 throw new ObjectNotFoundException(errorMsg);
             }
 
-            log.info("Starting Skroutz feed update with {} products", totalProducts);
+            // The catalog indexes the published feed, so products that are not listed are known
+            // to be missing without parsing the file, and a batch of only those needs no rewrite
+            int unlisted = 0;
+            if (sourceXmlFile.toPath().toAbsolutePath().equals(Paths.get(FEED_PATH).toAbsolutePath())
+                    && !catalogRepository.isEmpty()) {
+                Set<String> listed = catalogRepository.findListed(stockByMpn.keySet());
+                unlisted = stockByMpn.size() - listed.size();
+                stockByMpn.keySet().retainAll(listed);
+            }
+            if (stockByMpn.isEmpty()) {
+                syncLogService.completeSync(syncLog.getId(), totalProducts, 0, unlisted,
+                        String.format("Skroutz feed unchanged: none of the %d products is listed in the feed", totalProducts));
+                log.info("Skipped Skroutz feed update, none of the {} products is listed", totalProducts);
+                return;
+            }
+
+            log.info("Starting Skroutz feed update with {} products ({} not listed)", stockByMpn.size(), unlisted);
+
+            FeedRewrite rewrite;
+            // Concurrent updates would each start from the same feed and drop the other's changes
+            feedLock.lock();
+            try {
+                rewrite = rewriteFeed(sourceXmlFile.toPath(), Paths.get(FEED_PATH), stockByMpn);
+            } finally {
+                feedLock.unlock();
+            }
+
+            int notFound = totalProducts - rewrite.matched().size();
+            if (notFound > unlisted) {
+                log.warn("{} products were not found in the Skroutz feed: {}", notFound - unlisted,
+                        stockByMpn.keySet().stream().filter(id -> !rewrite.matched().contains(id)).limit(20).toList());
+            }
 
-            // Parse existing XML file
-            JAXBContext context = JAXBContext.newInstance(MyWebStore.class);
-            Unmarshaller unmarshaller = context.createUnmarshaller();
-            MyWebStore store = (MyWebStore) unmarshaller.unmarshal(sourceXmlFile);
+            // Complete the sync log
+            String details = String.format(
+                    "Skroutz feed updated: %d products processed, %d updated in feed (%d changed), %d not found " +
+                            "among %d feed products. Feed saved to %s",
+                    totalProducts, rewrite.matched().size(), rewrite.changed(), notFound, rewrite.feedProducts(),
+                    FEED_PATH
+            );
 
-            log.debug("Loaded existing XML feed with {} products",
-                    store.getProducts() != null ? store.getProducts().size() : 0);
+            syncLogService.completeSync(syncLog.getId(), totalProducts, rewrite.matched().size(), notFound, details);
 
-            // Update products in the feed
-            for (Product p : updatedProducts) {
-                try {
-                    boolean productFound = false;
+            log.info("Skroutz feed update completed: {} products processed, {} updated, {} failed. Feed updated at: {}",
+                    totalProducts, rewrite.matched().size(), notFound, FEED_PATH);
 
-                    if (store.getProducts() != null) {
-                        for (var feedProduct : store.getProducts()) {
-                            if (p.getId().equals(feedProduct.getMpn())) {
-                                int oldQuantity = feedProduct.getQuantity();
-                                feedProduct.setQuantity(p.getStock());
-                                productFound = true;
-                                updatedInFeed++;
+        } catch (ObjectNotFoundException e) {
+            // Re-throw this specific exception
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to update Skroutz feed", e);
+
+            syncLogService.failSync(syncLog.getId(), e.getMessage(), 0, 0, totalProducts);
+
+            throw new Exception("Failed to update Skroutz feed: " + e.getMessage(), e);
+        }
+    }
+
+    FeedRewrite rewriteFeed(Path source, Path target, Map<String, Integer> stockByMpn) throws Exception {
+        XMLEventFactory eventFactory = XMLEventFactory.newInstance();
+        String createdAt = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"));
+        Set<String> matched = new HashSet<>();
+        int feedProducts = 0;
+        int changed = 0;
+
+        Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), ".skroutz_feed", ".tmp");
+        try {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(source));
+                 OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                XMLEventReader reader = newInputFactory().createXMLEventReader(in);
+                XMLEventWriter writer = null;
+                // A product's events are held until its end, since <quantity> may come before <mpn>
+                ProductBuffer product = null;
+                boolean createdAtWritten = false;
 
-                                log.debug("Updated product {} in feed: stock {} -> {}",
-                                        p.getId(), oldQuantity, p.getStock());
-                                break;
+                while (reader.hasNext()) {
+                    XMLEvent event = reader.nextEvent();
+                    if (writer == null) {
+                        String encoding = event.isStartDocument() && ((StartDocument) event).encodingSet()
+                                ? ((StartDocument) event).getCharacterEncodingScheme() : "UTF-8";
+                        writer = XMLOutputFactory.newInstance().createXMLEventWriter(out, encoding);
+                    }
+
+                    if (product != null) {
+                        if (product.add(event)) {
+                            feedProducts++;
+                            Integer stock = product.mpn() != null ? stockByMpn.get(product.mpn()) : null;
+                            if (stock != null) {
+                                matched.add(product.mpn());
+                                if (product.writeWithQuantity(writer, eventFactory, stock)) {
+                                    changed++;
+                                }
+                            } else {
+                                product.writeTo(writer);
                             }
+                            product = null;
                         }
+                        continue;
                     }
 
-                    if (productFound) {
-                        successfulProducts++;
-                    } else {
-                        failedProducts++;
-                        log.warn("Product {} not found in Skroutz feed", p.getId());
+                    if (event.isStartElement()) {
+                        String name = event.asStartElement().getName().getLocalPart();
+                        if ("product".equals(name)) {
+                            product = new ProductBuffer();
+                            product.add(event);
+                            continue;
+                        }
+                        if ("created_at".equals(name)) {
+                            writer.add(event);
+                            writer.add(eventFactory.createCharacters(createdAt));
+                            skipToEnd(reader);
+                            writer.add(eventFactory.createEndElement("", "", "created_at"));
+                            createdAtWritten = true;
+                            continue;
+                        }
+                        if ("products".equals(name) && !createdAtWritten) {
+                            writer.add(eventFactory.createStartElement("", "", "created_at"));
+                            writer.add(eventFactory.createCharacters(createdAt));
+                            writer.add(eventFactory.createEndElement("", "", "created_at"));
+                            createdAtWritten = true;
+                        }
                     }
+                    writer.add(event);
+                }
+
+                if (writer != null) {
+                    writer.flush();
+                    writer.close();
+                }
+                reader.close();
+            }
+            publish(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
 
-                    // Update progress every 50 products
-                    if ((successfulProducts + failedProducts) % 50 == 0) {
-                        syncLogService.updateProgress(
-                                syncLog.getId(),
-                                successfulProducts + failedProducts,
-                                successfulProducts,
-                                failedProducts,
-                                String.format("Updated %d/%d products in feed",
-                                        successfulProducts + failedProducts, totalProducts)
-                        );
+        return new FeedRewrite(feedProducts, matched, changed);
+    }
+
+    /**
+     * Skip the rest of the current element, leaving the reader on its end tag
+     */
+    private static void skipToEnd(XMLEventReader reader) throws Exception {
+        int depth = 1;
+        while (reader.hasNext()) {
+            XMLEvent event = reader.nextEvent();
+            if (event.isStartElement()) {
+                depth++;
+            } else if (event.isEndElement() && --depth == 0) {
+                return;
+            }
+        }
+    }
+
+    static XMLInputFactory newInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    @FunctionalInterface
+    public interface FeedWriter {
+        void write(OutputStream out) throws Exception;
+    }
+
+    record FeedRewrite(int feedProducts, Set<String> matched, int changed) {
+    }
+
+    /**
+     * Events of one <product> element, with the text of its <mpn> and <quantity> children
+     */
+    private static final class ProductBuffer {
+        private final List<XMLEvent> events = new ArrayList<>();
+        private final StringBuilder mpnText = new StringBuilder();
+        private final StringBuilder quantityText = new StringBuilder();
+        private int depth;
+        private String child;
+
+        /**
+         * @return true when the event closed the product
+         */
+        boolean add(XMLEvent event) {
+            events.add(event);
+            if (event.isStartElement()) {
+                depth++;
+                if (depth == 2) {
+                    child = event.asStartElement().getName().getLocalPart();
+                }
+            } else if (event.isEndElement()) {
+                depth--;
+                child = null;
+                return depth == 0;
+            } else if (event.isCharacters() && depth == 2) {
+                if ("mpn".equals(child)) {
+                    mpnText.append(event.asCharacters().getData());
+                } else if ("quantity".equals(child)) {
+                    quantityText.append(event.asCharacters().getData());
+                }
+            }
+            return false;
+        }
+
+        String mpn() {
+            String mpn = mpnText.toString().trim();
+            return mpn.isEmpty() ? null : mpn;
+        }
+
+        void writeTo(XMLEventWriter writer) throws Exception {
+            for (XMLEvent event : events) {
+                writer.add(event);
+            }
+        }
+
+        /**
+         * Write the product with its quantity replaced, adding the element when it is missing
+         * @return true if the quantity differs from the one in the feed
+         */
+        boolean writeWithQuantity(XMLEventWriter writer, XMLEventFactory eventFactory, int quantity) throws Exception {
+            String text = Integer.toString(quantity);
+            boolean quantitySeen = false;
+            boolean inQuantity = false;
+            int level = 0;
+
+            for (XMLEvent event : events) {
+                if (event.isStartElement()) {
+                    level++;
+                    if (level == 2 && "quantity".equals(event.asStartElement().getName().getLocalPart())) {
+                        writer.add(event);
+                        writer.add(eventFactory.createCharacters(text));
+                        quantitySeen = true;
+                        inQuantity = true;
+                        continue;
+                    }
+                } else if (event.isEndElement()) {
+                    level--;
+                    if (inQuantity && level == 1) {
+                        inQuantity = false;
+                        writer.add(event);
+                        continue;
                     }
+                    if (level == 0 && !quantitySeen) {
+                        writer.add(eventFactory.createStartElement("", "", "quantity"));
+                        writer.add(eventFactory.createCharacters(text));
+                        writer.add(eventFactory.createEndElement("", "", "quantity"));
+                    }
+                }
+                if (!inQuantity) {
+                    writer.add(event);
+                }
+            }
+            return !text.equals(quantityText.toString().trim());
+        }
+    }
+
+    /**
+     * Check a feed file in one streaming pass: well-formed, a mywebstore root, and every product
+     * under products with a unique mpn and a numeric quantity
+     */
+    public FeedValidation validateFeed(Path feed) throws IOException {
+        List<String> errors = new ArrayList<>();
+        Set<String> mpns = new HashSet<>();
+        int products = 0;
+        int errorCount = 0;
 
-                } catch (Exception e) {
-                    failedProducts++;
-                    log.error("Failed to update product {} in feed: {}", p.getId(), e.getMessage(), e);
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(feed))) {
+            XMLStreamReader reader = newInputFactory().createXMLStreamReader(in);
+            try {
+                int depth = 0;
+                boolean inProducts = false;
+                boolean inProduct = false;
+                String mpn = null;
+
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        depth++;
+                        String name = reader.getLocalName();
+                        if (depth == 1 && !"mywebstore".equals(name)) {
+                            errors.add("Root element is <" + name + ">, expected <mywebstore>");
+                            return new FeedValidation(0, errors, 1);
+                        } else if (depth == 2 && "products".equals(name)) {
+                            inProducts = true;
+                        } else if (depth == 3 && inProducts && "product".equals(name)) {
+                            inProduct = true;
+                            mpn = null;
+                            products++;
+                        } else if (depth == 4 && inProduct && ("mpn".equals(name) || "quantity".equals(name))) {
+                            String text = reader.getElementText().trim();
+                            // getElementText consumed the end tag
+                            depth--;
+                            if ("mpn".equals(name)) {
+                                mpn = text;
+                            } else if (parseQuantity(text) == null) {
+                                errorCount = addError(errors, errorCount,
+                                        "Product #" + products + " has a non-numeric quantity '" + text + "'");
+                            }
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        if (depth == 3 && inProduct) {
+                            inProduct = false;
+                            if (mpn == null || mpn.isEmpty()) {
+                                errorCount = addError(errors, errorCount, "Product #" + products + " has no mpn");
+                            } else if (!mpns.add(mpn)) {
+                                errorCount = addError(errors, errorCount, "Duplicate mpn " + mpn);
+                            }
+                        } else if (depth == 2) {
+                            inProducts = false;
+                        }
+                        depth--;
+                    }
                 }
+            } finally {
+                reader.close();
             }
+        } catch (XMLStreamException e) {
+            errorCount = addError(errors, errorCount, "Malformed XML: " + e.getMessage());
+        }
 
-            // Update feed timestamp
-            String now = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"));
-            store.setCreatedAt(now);
+        if (products == 0 && errorCount == 0) {
+            errorCount = addError(errors, errorCount, "No products found under <products>");
+        }
+        return new FeedValidation(products, errors, errorCount);
+    }
 
-            // Write updated XML file
-            File output = new File(FEED_PATH);
-            Marshaller marshaller = context.createMarshaller();
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-            marshaller.marshal(store, output);
+    private static int addError(List<String> errors, int errorCount, String error) {
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(error);
+        }
+        return errorCount + 1;
+    }
 
-            // Complete the sync log
-            String details = String.format(
-                    "Skroutz feed updated: %d products processed, %d updated in feed, %d not found. Feed saved to %s",
-                    totalProducts, updatedInFeed, failedProducts, FEED_PATH
-            );
+    /**
+     * @param errors     the first errors found, at most {@value #MAX_REPORTED_ERRORS}
+     * @param errorCount all errors found
+     */
+    public record FeedValidation(int products, List<String> errors, int errorCount) {
 
-            syncLogService.completeSync(syncLog.getId(), totalProducts, successfulProducts, failedProducts, details);
+        public boolean valid() {
+            return errorCount == 0;
+        }
+    }
 
-            log.info("Skroutz feed update completed: {} products processed, {} updated, {} failed. Feed updated at: {}",
-                    totalProducts, successfulProducts, failedProducts, FEED_PATH);
+    /**
+     * Stream the published feed and report each product's mpn and quantity
+     * @return number of products read
+     */
+    public int forEachFeedQuantity(BiConsumer<String, Integer> consumer) throws Exception {
+        Path feed = Paths.get(FEED_PATH);
+        if (!Files.exists(feed)) {
+            throw new ObjectNotFoundException("Skroutz feed not found: " + FEED_PATH);
+        }
+
+        int products = 0;
+        try (InputStream in = Files.newInputStream(feed)) {
+            XMLStreamReader reader = newInputFactory().createXMLStreamReader(in);
+            try {
+                String mpn = null;
+                Integer quantity = null;
+                boolean inProduct = false;
 
-            if (failedProducts > 0) {
-                log.warn("{} products were not found in the Skroutz feed", failedProducts);
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        String name = reader.getLocalName();
+                        if ("product".equals(name)) {
+                            inProduct = true;
+                            mpn = null;
+                            quantity = null;
+                        } else if (inProduct && "mpn".equals(name)) {
+                            mpn = reader.getElementText().trim();
+                        } else if (inProduct && "quantity".equals(name)) {
+                            quantity = parseQuantity(reader.getElementText());
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT && "product".equals(reader.getLocalName())) {
+                        inProduct = false;
+                        if (mpn != null && !mpn.isEmpty()) {
+                            consumer.accept(mpn, quantity != null ? quantity : 0);
+                            products++;
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
             }
+        }
+        return products;
+    }
 
-        } catch (ObjectNotFoundException e) {
-            // Re-throw this specific exception
-            throw e;
-        } catch (Exception e) {
-            log.error("Failed to update Skroutz feed", e);
+    private static Integer parseQuantity(String text) {
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
 
-            syncLogService.failSync(
-                    syncLog.getId(),
-                    e.getMessage(),
-                    successfulProducts + failedProducts,
-                    successfulProducts,
-                    failedProducts
-            );
+    /**
+     * Replace the published feed with a fully written file from the same directory. The rename
+     * is atomic, so readers see either the old or the new feed, never a partial one.
+     */
+    public void publish(Path writtenFile) throws IOException {
+        feedLock.lock();
+        try {
+            publish(writtenFile, Paths.get(FEED_PATH));
+        } finally {
+            feedLock.unlock();
+        }
+    }
 
-            throw new Exception("Failed to update Skroutz feed: " + e.getMessage(), e);
+    /**
+     * Write a complete new feed and publish it. Holds the feed lock throughout, so no stock
+     * rewrite can start from the old feed and publish over the new one.
+     */
+    public void writeFeed(FeedWriter feedWriter) throws Exception {
+        Path target = Paths.get(FEED_PATH);
+        feedLock.lock();
+        try {
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), ".skroutz_feed", ".tmp");
+            try {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                    feedWriter.write(out);
+                }
+                publish(temp, target);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } finally {
+            feedLock.unlock();
+        }
+    }
+
+    public Path getFeedPath() {
+        return Paths.get(FEED_PATH);
+    }
+
+    private void publish(Path writtenFile, Path target) throws IOException {
+        Files.move(writtenFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        snapshot.set(null);
+    }
+
+    /**
+     * The published feed as served to Skroutz, with its plain and gzipped bytes and validators.
+     * Only a stat of the file is done per call; the content is read again only when it changed.
+     */
+    public FeedSnapshot getFeed() throws IOException {
+        Path feed = Paths.get(FEED_PATH);
+        FeedSnapshot current = snapshot.get();
+        BasicFileAttributes attributes = readAttributes(feed);
+        if (current != null && current.matches(attributes)) {
+            return current;
+        }
+
+        synchronized (snapshot) {
+            current = snapshot.get();
+            if (current != null && current.matches(attributes)) {
+                return current;
+            }
+            // If the file is replaced while being read, the stale attributes force a reload next time
+            byte[] xml = Files.readAllBytes(feed);
+            FeedSnapshot loaded = new FeedSnapshot(xml, gzip(xml), DigestUtils.md5DigestAsHex(xml),
+                    attributes.lastModifiedTime(), attributes.size());
+            snapshot.set(loaded);
+            log.info("Loaded Skroutz feed for serving: {} bytes, {} gzipped", xml.length, loaded.gzip().length);
+            return loaded;
         }
     }
 
-    public File getFeedFile() {
-        // Log when someone requests the feed file (optional)
+    public void recordFeedRequest(boolean notModified) {
+        feedRequests.increment();
+        if (notModified) {
+            feedNotModified.increment();
+        }
+    }
+
+    /**
+     * Write the feed request counters to the sync log, one row per interval instead of one per request
+     */
+    @Scheduled(fixedDelayString = "${skroutz.feed.request-log-interval-ms:3600000}")
+    public void logFeedRequests() {
+        long requests = feedRequests.sumThenReset();
+        long notModified = feedNotModified.sumThenReset();
+        LocalDateTime since = feedRequestsSince;
+        feedRequestsSince = LocalDateTime.now();
+        if (requests == 0) {
+            return;
+        }
         syncLogService.logSingleOperation(
                 Platform.Skroutz,
                 SyncDirection.OUTBOUND,
                 SyncOperation.FEED_UPDATE,
                 null,
                 true,
-                "Skroutz feed file requested",
+                String.format("Skroutz feed requested %d times since %s (%d not modified)", requests, since, notModified),
                 null
         );
+    }
+
+    private static BasicFileAttributes readAttributes(Path feed) throws IOException {
+        try {
+            return Files.readAttributes(feed, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            throw new ObjectNotFoundException("Skroutz feed not found: " + FEED_PATH);
+        }
+    }
 
-        return Paths.get(FEED_PATH).toFile();
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(512, data.length / 8));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @param md5 hex digest of the plain feed, the base of both variants' ETags
+     */
+    public record FeedSnapshot(byte[] xml, byte[] gzip, String md5, FileTime modifiedAt, long size) {
+
+        public String etag(boolean gzipped) {
+            return "\"" + md5 + (gzipped ? "-gzip" : "") + "\"";
+        }
+
+        public long lastModified() {
+            return modifiedAt.toMillis();
+        }
+
+        private boolean matches(BasicFileAttributes attributes) {
+            return size == attributes.size() && modifiedAt.equals(attributes.lastModifiedTime());
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,148 @@
+package com.ludogoriesoft.sigmatherm.service;
+
+import com.ludogoriesoft.sigmatherm.dto.SkroutzOrderWebhook;
+import com.ludogoriesoft.sigmatherm.model.Synchronization;
+import com.ludogoriesoft.sigmatherm.model.enums.EventType;
+import com.ludogoriesoft.sigmatherm.model.enums.Platform;
+import com.ludogoriesoft.sigmatherm.model.enums.SyncDirection;
+import com.ludogoriesoft.sigmatherm.model.enums.SyncOperation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Applies Skroutz order webhooks taken from the inbox to our stock
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SkroutzOrderService {
+
+    private static final int MAX_REPORTED_FAILURES = 20;
+
+    private final ProductService productService;
+    private final SynchronizationService synchronizationService;
+    private final SyncLogService syncLogService;
+    private final WebhookEventLogService webhookEventLogService;
+
+    /**
+     * Apply an accepted or returned order once; duplicates and other states are only logged.
+     * The line items are summed per mpn and applied together with the dedup claim and the
+     * sync link in one transaction, so an order is applied completely or not at all; a line
+     * whose product does not exist is reported as failed. Anything thrown rolls the order back
+     * and makes the inbox retry it.
+     */
+    public void processWebhook(SkroutzOrderWebhook webhook) {
+        // Generate unique batch ID for this webhook processing
+        String batchId = "skroutz-webhook-" + System.currentTimeMillis();
+        LocalDateTime startTime = LocalDateTime.now();
+
+        EventType type = webhook.getEvent_type();
+        String state = webhook.getOrder().getState();
+        String orderCode = webhook.getOrder().getCode();
+
+        log.info("Processing Skroutz webhook type: {} with state: {} for order: {}", type, state, orderCode);
+
+        // Process only accepted or returned orders
+        if (!"accepted".equals(state) && !"returned".equals(state)) {
+            log.info("Skipping webhook processing for unsupported state: {}", state);
+
+            // Log the skipped webhook
+            syncLogService.logSingleOperation(
+                    Platform.Skroutz,
+                    SyncDirection.INBOUND,
+                    SyncOperation.ORDERS,
+                    null,
+                    true,
+                    String.format("Skipped webhook for order %s with unsupported state %s", orderCode, state),
+                    null
+            );
+            return;
+        }
+
+        boolean accepted = state.equals("accepted");
+        SyncOperation operation = accepted ? SyncOperation.ORDERS : SyncOperation.RETURNS;
+        List<SkroutzOrderWebhook.LineItem> lineItems =
+                webhook.getOrder().getLine_items() != null ? webhook.getOrder().getLine_items() : List.of();
+
+        // Sorted so concurrent orders lock product rows in the same order
+        TreeMap<String, Integer> deltas = new TreeMap<>();
+        List<String> failures = new ArrayList<>();
+        int failedLines = 0;
+        for (SkroutzOrderWebhook.LineItem line : lineItems) {
+            String productId = line.getMpn() != null ? line.getMpn().trim() : "";
+            if (productId.isEmpty()) {
+                failedLines++;
+                addFailure(failures, "line " + line.getId() + ": no mpn");
+                continue;
+            }
+            int quantity = Math.abs(line.getQuantity());
+            deltas.merge(productId, accepted ? -quantity : quantity, Integer::sum);
+        }
+
+        Set<String> updated;
+        try {
+            updated = webhookEventLogService.applyOnce(orderCode, type.name(), () -> {
+                Synchronization synchronization = synchronizationService.createSync(Platform.Skroutz);
+                return productService.applyOrderDeltas(deltas, synchronization);
+            });
+        } catch (RuntimeException e) {
+            syncLogService.logBatchOperation(Platform.Skroutz, SyncDirection.INBOUND, operation, batchId,
+                    startTime, 0, lineItems.size(), String.format("Order %s (%s) was not applied", orderCode, state),
+                    e.getMessage());
+            throw e;
+        }
+
+        if (updated == null) {
+            log.warn("Duplicate webhook received for order {} and type {}, skipping processing", orderCode, type);
+
+            // Log the duplicate webhook attempt
+            syncLogService.logSingleOperation(
+                    Platform.Skroutz,
+                    SyncDirection.INBOUND,
+                    SyncOperation.ORDERS,
+                    null,
+                    false,
+                    String.format("Duplicate webhook for order %s, type %s", orderCode, type),
+                    "Duplicate webhook ignored"
+            );
+            return;
+        }
+
+        for (SkroutzOrderWebhook.LineItem line : lineItems) {
+            String productId = line.getMpn() != null ? line.getMpn().trim() : "";
+            if (!productId.isEmpty() && !updated.contains(productId)) {
+                failedLines++;
+                addFailure(failures, productId + ": product not found");
+                log.warn("Product {} of {} order {} not found", productId, state, orderCode);
+            }
+        }
+        int successfulLines = lineItems.size() - failedLines;
+
+        // One log row per order instead of one progress write per line
+        String details = String.format(
+                "Webhook processed: Order %s (%s), Items: %d total, %d successful, %d failed, %d products updated%s",
+                orderCode, state, lineItems.size(), successfulLines, failedLines, updated.size(),
+                failures.isEmpty() ? "" : ". Failed: " + String.join("; ", failures));
+        syncLogService.logBatchOperation(Platform.Skroutz, SyncDirection.INBOUND, operation, batchId, startTime,
+                successfulLines, failedLines, details, null);
+
+        if (failedLines > 0) {
+            log.warn("Webhook processing completed with {} failures out of {} items", failedLines, lineItems.size());
+        } else {
+            log.info("Webhook processing completed successfully for all {} items", lineItems.size());
+        }
+    }
+
+    private static void addFailure(List<String> failures, String failure) {
+        if (failures.size() < MAX_REPORTED_FAILURES) {
+            failures.add(failure);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.ludogoriesoft.sigmatherm.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ludogoriesoft.sigmatherm.dto.SkroutzOrderWebhook;
+import com.ludogoriesoft.sigmatherm.model.SkroutzWebhookInboxEntry;
+import com.ludogoriesoft.sigmatherm.model.enums.InboxStatus;
+import com.ludogoriesoft.sigmatherm.repository.SkroutzWebhookInboxRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Durable inbox of received Skroutz webhooks. The endpoint only inserts the raw payload;
+ * {@link SkroutzWebhookWorker} processes it, retrying with exponential backoff until the
+ * entry is processed or given up after the maximum number of attempts.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SkroutzWebhookInboxService {
+
+    @Value("${skroutz.webhook.inbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${skroutz.webhook.inbox.backoff-ms:5000}")
+    private long backoffMs;
+
+    @Value("${skroutz.webhook.inbox.max-backoff-ms:600000}")
+    private long maxBackoffMs;
+
+    private final SkroutzWebhookInboxRepository inboxRepository;
+    private final ObjectMapper objectMapper;
+
+    public SkroutzWebhookInboxEntry receive(SkroutzOrderWebhook webhook, String rawPayload) {
+        LocalDateTime now = LocalDateTime.now();
+        SkroutzWebhookInboxEntry entry = SkroutzWebhookInboxEntry.builder()
+                .orderCode(webhook.getOrder().getCode())
+                .eventType(webhook.getEvent_type().name())
+                .payload(rawPayload)
+                .status(InboxStatus.PENDING)
+                .nextAttemptAt(now)
+                .receivedAt(now)
+                .build();
+        return inboxRepository.save(entry);
+    }
+
+    /**
+     * Lease up to limit due entries to the caller. A lease that runs out (the worker died
+     * mid-batch) makes the entry due again.
+     */
+    @Transactional
+    public List<SkroutzWebhookInboxEntry> claimDue(int limit, Duration lease) {
+        LocalDateTime now = LocalDateTime.now();
+        List<SkroutzWebhookInboxEntry> entries = inboxRepository.lockDue(now, limit);
+        for (SkroutzWebhookInboxEntry entry : entries) {
+            entry.setStatus(InboxStatus.PROCESSING);
+            entry.setAttempts(entry.getAttempts() + 1);
+            entry.setNextAttemptAt(now.plus(lease));
+        }
+        return inboxRepository.saveAll(entries);
+    }
+
+    public void markProcessed(SkroutzWebhookInboxEntry entry) {
+        entry.setStatus(InboxStatus.PROCESSED);
+        entry.setProcessedAt(LocalDateTime.now());
+        entry.setLastError(null);
+        inboxRepository.save(entry);
+    }
+
+    /**
+     * Schedule the next attempt, or give the entry up once it used up its attempts
+     */
+    public void markFailed(SkroutzWebhookInboxEntry entry, String error) {
+        entry.setLastError(error);
+        if (entry.getAttempts() >= maxAttempts) {
+            entry.setStatus(InboxStatus.DEAD);
+            log.error("Skroutz webhook {} for order {} is dead after {} attempts: {}",
+                    entry.getId(), entry.getOrderCode(), entry.getAttempts(), error);
+        } else {
+            long delay = Math.min(maxBackoffMs, backoffMs << Math.min(entry.getAttempts() - 1, 20));
+            entry.setStatus(InboxStatus.PENDING);
+            entry.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(delay)));
+        }
+        inboxRepository.save(entry);
+    }
+
+    public void markDead(SkroutzWebhookInboxEntry entry, String error) {
+        entry.setStatus(InboxStatus.DEAD);
+        entry.setLastError(error);
+        inboxRepository.save(entry);
+        log.error("Skroutz webhook {} for order {} is dead: {}", entry.getId(), entry.getOrderCode(), error);
+    }
+
+    public long countByStatus(InboxStatus status) {
+        return inboxRepository.countByStatus(status);
+    }
+
+    @Transactional
+    public int deleteProcessedBefore(LocalDateTime before) {
+        return inboxRepository.deleteProcessedBefore(before);
+    }
+
+    public SkroutzOrderWebhook readPayload(SkroutzWebhookInboxEntry entry) throws JsonProcessingException {
+        return objectMapper.readValue(entry.getPayload(), SkroutzOrderWebhook.class);
+    }
+}
@@ -0,0 +1,111 @@
+package com.ludogoriesoft.sigmatherm.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.ludogoriesoft.sigmatherm.model.SkroutzWebhookInboxEntry;
+import com.ludogoriesoft.sigmatherm.helper.KeyedExecutor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Drains the Skroutz webhook inbox in batches on virtual-thread lanes keyed by order code.
+ * Events of the same order run one after another in arrival order; different orders run in parallel.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SkroutzWebhookWorker {
+
+    @Value("${skroutz.webhook.inbox.batch-size:20}")
+    private int batchSize;
+
+    @Value("${skroutz.webhook.inbox.lease-ms:120000}")
+    private long leaseMs;
+
+    @Value("${skroutz.webhook.inbox.retention-days:14}")
+    private int retentionDays;
+
+    private final SkroutzWebhookInboxService inboxService;
+    private final SkroutzOrderService skroutzOrderService;
+
+    @Value("${skroutz.webhook.inbox.lanes:16}")
+    private int laneCount;
+
+    private KeyedExecutor orderLanes;
+
+    @PostConstruct
+    void initOrderLanes() {
+        orderLanes = new KeyedExecutor("skroutz-orders", laneCount, Thread.ofVirtual().factory());
+    }
+
+    @Scheduled(fixedDelayString = "${skroutz.webhook.inbox.poll-interval-ms:1000}")
+    public void processInbox() {
+        List<SkroutzWebhookInboxEntry> entries;
+        do {
+            entries = inboxService.claimDue(batchSize, Duration.ofMillis(leaseMs));
+            if (!entries.isEmpty()) {
+                processBatch(entries);
+            }
+        } while (entries.size() == batchSize && !Thread.currentThread().isInterrupted());
+    }
+
+    @Scheduled(cron = "${skroutz.webhook.inbox.cleanup-cron:0 45 3 * * *}")
+    public void deleteProcessedEntries() {
+        int deleted = inboxService.deleteProcessedBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            log.info("Deleted {} processed Skroutz webhooks older than {} days", deleted, retentionDays);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        orderLanes.close();
+    }
+
+    public KeyedExecutor.Stats laneStats() {
+        return orderLanes.stats();
+    }
+
+    private void processBatch(List<SkroutzWebhookInboxEntry> entries) {
+        List<CompletableFuture<Void>> results = new ArrayList<>(entries.size());
+        for (SkroutzWebhookInboxEntry entry : entries) {
+            results.add(orderLanes.submit(entry.getOrderCode(), () -> {
+                process(entry);
+                return null;
+            }));
+        }
+        try {
+            CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get();
+        } catch (ExecutionException e) {
+            log.error("Skroutz webhook worker task failed", e.getCause());
+        } catch (InterruptedException e) {
+            // Unfinished entries are picked up again once their lease runs out
+            Thread.currentThread().interrupt();
+            return;
+        }
+        log.info("Processed {} Skroutz webhooks", entries.size());
+    }
+
+    private void process(SkroutzWebhookInboxEntry entry) {
+        try {
+            skroutzOrderService.processWebhook(inboxService.readPayload(entry));
+            inboxService.markProcessed(entry);
+        } catch (JsonProcessingException e) {
+            inboxService.markDead(entry, "Unreadable payload: " + e.getMessage());
+        } catch (Exception e) {
+            log.error("Failed to process Skroutz webhook {} for order {}", entry.getId(), entry.getOrderCode(), e);
+            inboxService.markFailed(entry, e.getMessage());
+        }
+    }
+}
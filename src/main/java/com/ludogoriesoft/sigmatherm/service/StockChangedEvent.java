@@ -0,0 +1,9 @@
+package com.ludogoriesoft.sigmatherm.service;
+
+import java.util.Collection;
+
+/**
+ * Published by {@link ProductService} whenever the stock of products changes, from any channel
+ */
+public record StockChangedEvent(Collection<String> productIds) {
+}
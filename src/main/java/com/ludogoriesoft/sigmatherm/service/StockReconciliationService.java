@@ -0,0 +1,199 @@
+package com.ludogoriesoft.sigmatherm.service;
+
+import com.ludogoriesoft.sigmatherm.dto.response.StockDriftReport;
+import com.ludogoriesoft.sigmatherm.helper.StockSnapshot;
+import com.ludogoriesoft.sigmatherm.model.SyncLog;
+import com.ludogoriesoft.sigmatherm.model.enums.Platform;
+import com.ludogoriesoft.sigmatherm.model.enums.SyncDirection;
+import com.ludogoriesoft.sigmatherm.model.enums.SyncOperation;
+import com.ludogoriesoft.sigmatherm.repository.ProductJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the stock each sales channel currently shows against Product.stock
+ * and optionally pushes corrections for the drifted products only.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StockReconciliationService {
+
+    public static final List<Platform> SUPPORTED_PLATFORMS =
+            List.of(Platform.eMagBg, Platform.eMagRo, Platform.eMagHu, Platform.Bol, Platform.Skroutz);
+
+    @Value("${emag.api.bg-url}")
+    private String emagBgUrl;
+
+    @Value("${emag.api.ro-url}")
+    private String emagRoUrl;
+
+    @Value("${emag.api.hu-url}")
+    private String emagHuUrl;
+
+    @Value("${reconciliation.emag.page-concurrency:4}")
+    private int emagPageConcurrency;
+
+    @Value("${reconciliation.max-reported-drifts:200}")
+    private int maxReportedDrifts;
+
+    private final ProductJdbcRepository productJdbcRepository;
+    private final SyncLogService syncLogService;
+    private final EmagService emagService;
+    private final BolService bolService;
+    private final BolOfferService bolOfferService;
+    private final SkroutzFeedService skroutzFeedService;
+
+    public StockDriftReport reconcile(Platform platform, boolean correct) {
+        if (!SUPPORTED_PLATFORMS.contains(platform)) {
+            throw new IllegalArgumentException("Stock reconciliation is not supported for " + platform);
+        }
+
+        String batchId = platform.name().toLowerCase() + "-reconciliation-" + System.currentTimeMillis();
+        SyncLog syncLog = syncLogService.startSync(
+                platform,
+                SyncDirection.INBOUND,
+                SyncOperation.RECONCILIATION,
+                null,
+                batchId
+        );
+
+        DriftCollector collector = null;
+        try {
+            StockSnapshot snapshot = productJdbcRepository.loadStockSnapshot();
+            collector = new DriftCollector(snapshot);
+            DriftCollector drifts = collector;
+
+            switch (platform) {
+                case eMagBg, eMagRo, eMagHu -> emagService.forEachOffer(emagUrl(platform), emagPageConcurrency,
+                        offer -> drifts.record(offer.getId(), offer.getTotalStock(), null));
+                case Bol -> bolService.readOfferExport(reader -> bolOfferService.forEachExportRow(reader,
+                        (offerId, reference, ean, stockAmount) ->
+                                drifts.record(reference, stockAmount != null ? stockAmount : 0, offerId)));
+                case Skroutz -> skroutzFeedService.forEachFeedQuantity(
+                        (mpn, quantity) -> drifts.record(mpn, quantity, null));
+                default -> throw new IllegalArgumentException("Stock reconciliation is not supported for " + platform);
+            }
+
+            StockDriftReport report = collector.toReport(platform, maxReportedDrifts);
+            if (correct && !collector.mismatches.isEmpty()) {
+                report.setCorrectionsQueued(queueCorrections(platform, collector.mismatches));
+            }
+
+            syncLogService.completeSync(syncLog.getId(), report.getChecked(), report.getMatched(),
+                    report.getMismatched(), describe(report));
+
+            log.info("{} stock reconciliation: {} checked, {} drifted, {} unknown, {} corrections queued",
+                    platform, report.getChecked(), report.getMismatched(), report.getUnknownProducts(),
+                    report.getCorrectionsQueued());
+            return report;
+
+        } catch (Exception e) {
+            int checked = collector != null ? collector.checked : 0;
+            syncLogService.failSync(syncLog.getId(), e.getMessage(), checked, 0, 0);
+            log.error("Failed to reconcile {} stock", platform, e);
+            throw new RuntimeException("Failed to reconcile " + platform + " stock: " + e.getMessage(), e);
+        }
+    }
+
+    private int queueCorrections(Platform platform, List<Mismatch> mismatches) throws Exception {
+        switch (platform) {
+            case eMagBg, eMagRo, eMagHu -> {
+                String url = emagUrl(platform);
+                for (Mismatch mismatch : mismatches) {
+                    emagService.processStockUpdateToEmag(url, mismatch.productId, mismatch.ourStock);
+                }
+            }
+            case Bol -> {
+                for (Mismatch mismatch : mismatches) {
+                    bolService.enqueueStockUpdate(mismatch.channelReference, mismatch.ourStock);
+                }
+            }
+            // Written into the feed by its next flush together with the other pending changes
+            case Skroutz -> skroutzFeedService.markPending(mismatches.stream().map(m -> m.productId).toList());
+            default -> {
+                return 0;
+            }
+        }
+        return mismatches.size();
+    }
+
+    private String emagUrl(Platform platform) {
+        return switch (platform) {
+            case eMagBg -> emagBgUrl;
+            case eMagRo -> emagRoUrl;
+            case eMagHu -> emagHuUrl;
+            default -> throw new IllegalArgumentException(platform + " is not an eMag store");
+        };
+    }
+
+    private static String describe(StockDriftReport report) {
+        StringBuilder details = new StringBuilder(String.format(
+                "Checked %d offers: %d matched, %d drifted, %d unknown products, %d corrections queued",
+                report.getChecked(), report.getMatched(), report.getMismatched(),
+                report.getUnknownProducts(), report.getCorrectionsQueued()));
+        for (StockDriftReport.Drift drift : report.getDrifts()) {
+            details.append("; ").append(drift.getProductId())
+                    .append(' ').append(drift.getChannelStock())
+                    .append("->").append(drift.getOurStock());
+        }
+        if (report.isTruncated()) {
+            details.append("; ...");
+        }
+        return details.toString();
+    }
+
+    private record Mismatch(String productId, int channelStock, int ourStock, String channelReference) {
+    }
+
+    /**
+     * Thread-safe accumulator; channel rows arrive from parallel page fetches
+     */
+    private static final class DriftCollector {
+        private final StockSnapshot snapshot;
+        private final List<Mismatch> mismatches = new ArrayList<>();
+        private int checked;
+        private int matched;
+        private int unknown;
+
+        private DriftCollector(StockSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        synchronized void record(String productId, int channelStock, String channelReference) {
+            checked++;
+            int index = snapshot.indexOf(productId);
+            if (index < 0) {
+                unknown++;
+                return;
+            }
+            // Channels cannot show negative stock, so an oversold product is in sync at 0
+            int ourStock = Math.max(0, snapshot.stockAt(index));
+            if (ourStock == channelStock) {
+                matched++;
+            } else {
+                mismatches.add(new Mismatch(productId, channelStock, ourStock, channelReference));
+            }
+        }
+
+        synchronized StockDriftReport toReport(Platform platform, int maxReported) {
+            StockDriftReport report = new StockDriftReport();
+            report.setPlatform(platform);
+            report.setChecked(checked);
+            report.setMatched(matched);
+            report.setMismatched(mismatches.size());
+            report.setUnknownProducts(unknown);
+            report.setTruncated(mismatches.size() > maxReported);
+            mismatches.stream()
+                    .limit(maxReported)
+                    .forEach(m -> report.getDrifts().add(
+                            new StockDriftReport.Drift(m.productId, m.channelStock, m.ourStock)));
+            return report;
+        }
+    }
+}
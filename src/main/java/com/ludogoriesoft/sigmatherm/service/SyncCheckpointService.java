@@ -0,0 +1,102 @@
+package com.ludogoriesoft.sigmatherm.service;
+
+import com.ludogoriesoft.sigmatherm.model.SyncCheckpoint;
+import com.ludogoriesoft.sigmatherm.model.enums.Platform;
+import com.ludogoriesoft.sigmatherm.model.enums.SyncOperation;
+import com.ludogoriesoft.sigmatherm.model.enums.SyncStatus;
+import com.ludogoriesoft.sigmatherm.repository.SyncCheckpointRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SyncCheckpointService {
+
+    @Value("${sync.checkpoint.auto-resume:true}")
+    private boolean autoResume;
+
+    private final SyncCheckpointRepository syncCheckpointRepository;
+
+    /**
+     * Open the checkpoint of a window. An unfinished checkpoint is resumed when auto-resume is on;
+     * anything else starts over from page 0.
+     */
+    public SyncCheckpoint open(Platform platform, SyncOperation operation, String windowKey) {
+        return open(platform, operation, windowKey, false);
+    }
+
+    /**
+     * Open the checkpoint of a window whose records cannot be applied twice. A completed window
+     * is returned as is, with nothing left to resume; running it again takes an explicit reset
+     * through {@link #deleteCheckpoint}.
+     */
+    public SyncCheckpoint openOnce(Platform platform, SyncOperation operation, String windowKey) {
+        return open(platform, operation, windowKey, true);
+    }
+
+    private SyncCheckpoint open(Platform platform, SyncOperation operation, String windowKey, boolean keepCompleted) {
+        SyncCheckpoint checkpoint = syncCheckpointRepository
+                .findByPlatformAndOperationAndWindowKey(platform, operation, windowKey)
+                .orElseGet(() -> SyncCheckpoint.builder()
+                        .platform(platform)
+                        .operation(operation)
+                        .windowKey(windowKey)
+                        .build());
+
+        if (checkpoint.isCompleted() && keepCompleted) {
+            log.info("{} {} window {} is already complete, skipping it", platform, operation, windowKey);
+            return checkpoint;
+        }
+        if (checkpoint.isInProgress() && autoResume) {
+            log.info("Resuming {} {} window {} after page {} (cursor {})",
+                    platform, operation, windowKey, checkpoint.getLastPage(), checkpoint.getCursor());
+            return checkpoint;
+        }
+
+        checkpoint.setLastPage(0);
+        checkpoint.setCursor(null);
+        checkpoint.setStatus(SyncStatus.STARTED);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        return syncCheckpointRepository.save(checkpoint);
+    }
+
+    /**
+     * Run the page's work and advance the checkpoint in one transaction,
+     * so a page is either fully applied and recorded or not at all
+     */
+    @Transactional
+    public <T> T commitPage(SyncCheckpoint checkpoint, int page, String cursor, Supplier<T> work) {
+        T result = work.get();
+        checkpoint.setLastPage(page);
+        checkpoint.setCursor(cursor);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        syncCheckpointRepository.save(checkpoint);
+        return result;
+    }
+
+    public void complete(SyncCheckpoint checkpoint) {
+        checkpoint.setStatus(SyncStatus.SUCCESS);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        syncCheckpointRepository.save(checkpoint);
+    }
+
+    public List<SyncCheckpoint> getCheckpoints() {
+        return syncCheckpointRepository.findAllByOrderByUpdatedAtDesc();
+    }
+
+    /**
+     * Forget a checkpoint so the next run of its window starts from the beginning
+     */
+    public void deleteCheckpoint(UUID id) {
+        syncCheckpointRepository.deleteById(id);
+    }
+}
@@ -177,6 +177,39 @@ public class SyncLogService {
         return saved;
     }
 
+    /**
+     * Log an operation that was already carried out as one batch, with a single row
+     */
+    public SyncLog logBatchOperation(Platform platform, SyncDirection direction, SyncOperation operation,
+                                     String batchId, LocalDateTime startTime, int successful, int failed,
+                                     String details, String errorMessage) {
+        SyncStatus status = failed == 0 ? SyncStatus.SUCCESS
+                : successful > 0 ? SyncStatus.PARTIAL_SUCCESS : SyncStatus.FAILED;
+
+        SyncLog syncLog = SyncLog.builder()
+                .platform(platform)
+                .direction(direction)
+                .operation(operation)
+                .status(status)
+                .startTime(startTime)
+                .endTime(LocalDateTime.now())
+                .batchId(batchId)
+                .itemsProcessed(successful + failed)
+                .itemsSuccessful(successful)
+                .itemsFailed(failed)
+                .details(details)
+                .errorMessage(errorMessage)
+                .build();
+
+        syncLog.calculateDuration();
+        SyncLog saved = syncLogRepository.save(syncLog);
+
+        log.info("Logged batch {} {} operation for {} - Status: {}, Success: {}, Failed: {}",
+                direction, operation, platform, status, successful, failed);
+
+        return saved;
+    }
+
     // Query methods
     public List<SyncLog> getRecentLogsByPlatform(Platform platform) {
         return syncLogRepository.findByPlatformOrderByStartTimeDesc(platform);
@@ -0,0 +1,101 @@
+package com.ludogoriesoft.sigmatherm.service;
+
+import com.ludogoriesoft.sigmatherm.repository.WebhookEventLogJdbcRepository;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Deduplication of webhook deliveries. A delivery is claimed with a single insert into
+ * webhook_event_log; recently claimed events are also kept in a bounded in-memory cache, so
+ * a retried delivery is recognised without touching the database.
+ */
+@Slf4j
+@Service
+public class WebhookEventLogService {
+
+    private final WebhookEventLogJdbcRepository webhookEventLogJdbcRepository;
+    private final int retentionDays;
+    private final Map<String, Boolean> recentEvents;
+
+    public WebhookEventLogService(WebhookEventLogJdbcRepository webhookEventLogJdbcRepository,
+                                  @Value("${skroutz.webhook.dedup.retention-days:30}") int retentionDays,
+                                  @Value("${skroutz.webhook.dedup.cache-size:10000}") int cacheSize) {
+        this.webhookEventLogJdbcRepository = webhookEventLogJdbcRepository;
+        this.retentionDays = retentionDays;
+        // Access ordered, so the least recently seen event is evicted first
+        this.recentEvents = new LinkedHashMap<>(Math.min(cacheSize, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Claim an event for processing. Inside a transaction the claim is rolled back with it,
+     * so the event is only cached as handled once the transaction commits.
+     * @return true if this is the first delivery of the event
+     */
+    public boolean claim(String orderId, String eventType) {
+        String key = orderId + '|' + eventType;
+        synchronized (recentEvents) {
+            if (recentEvents.containsKey(key)) {
+                return false;
+            }
+        }
+
+        boolean claimed = webhookEventLogJdbcRepository.claim(orderId, eventType);
+        if (!claimed || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            remember(key);
+        } else {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remember(key);
+                }
+            });
+        }
+        return claimed;
+    }
+
+    /**
+     * Claim the event and run apply in the same transaction. If apply fails the claim is rolled
+     * back with it, so a redelivery or retry can apply the event again.
+     * @return the result of apply, or null if the event was handled before
+     */
+    @Transactional
+    public <T> T applyOnce(String orderId, String eventType, Supplier<T> apply) {
+        if (!claim(orderId, eventType)) {
+            return null;
+        }
+        return apply.get();
+    }
+
+    /**
+     * Drop events past the retention window, keeping the table and its unique index small.
+     * Skroutz stops retrying long before that, so an expired event cannot come back.
+     */
+    @Scheduled(cron = "${skroutz.webhook.dedup.cleanup-cron:0 0 4 * * *}")
+    public void deleteExpired() {
+        int deleted = webhookEventLogJdbcRepository.deleteReceivedBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            log.info("Deleted {} webhook events older than {} days", deleted, retentionDays);
+        }
+    }
+
+    private void remember(String key) {
+        synchronized (recentEvents) {
+            recentEvents.put(key, Boolean.TRUE);
+        }
+    }
+}
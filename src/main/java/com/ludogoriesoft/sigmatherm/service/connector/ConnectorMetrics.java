@@ -0,0 +1,33 @@
+package com.ludogoriesoft.sigmatherm.service.connector;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals for one connector (platform + operation) since startup
+ */
+@Getter
+public class ConnectorMetrics {
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder failedRuns = new LongAdder();
+    private final LongAdder pagesFetched = new LongAdder();
+    private final LongAdder pageFailures = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder records = new LongAdder();
+    private final LongAdder stockUpdates = new LongAdder();
+    private final LongAdder fetchMillis = new LongAdder();
+    private final LongAdder applyMillis = new LongAdder();
+    private final AtomicLong lastRunMillis = new AtomicLong();
+
+    public Snapshot snapshot() {
+        return new Snapshot(runs.sum(), failedRuns.sum(), pagesFetched.sum(), pageFailures.sum(), retries.sum(),
+                records.sum(), stockUpdates.sum(), fetchMillis.sum(), applyMillis.sum(), lastRunMillis.get());
+    }
+
+    public record Snapshot(long runs, long failedRuns, long pagesFetched, long pageFailures, long retries,
+                           long records, long stockUpdates, long fetchMillis, long applyMillis,
+                           long lastRunMillis) {
+    }
+}
@@ -0,0 +1,17 @@
+package com.ludogoriesoft.sigmatherm.service.connector;
+
+import java.util.List;
+
+public record ConnectorPage<R>(List<R> items, int totalPages) {
+
+    public ConnectorPage {
+        items = items != null ? items : List.of();
+    }
+
+    /**
+     * A source that returns everything in one response
+     */
+    public static <R> ConnectorPage<R> single(List<R> items) {
+        return new ConnectorPage<>(items, 1);
+    }
+}
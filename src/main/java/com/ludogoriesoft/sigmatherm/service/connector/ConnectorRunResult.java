@@ -0,0 +1,4 @@
+package com.ludogoriesoft.sigmatherm.service.connector;
+
+public record ConnectorRunResult(int pages, int failedPages, int processed, int successful, int failed) {
+}
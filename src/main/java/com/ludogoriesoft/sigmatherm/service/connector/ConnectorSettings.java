@@ -0,0 +1,12 @@
+package com.ludogoriesoft.sigmatherm.service.connector;
+
+import java.time.Duration;
+
+/**
+ * @param concurrency       pages fetched in parallel after the first one
+ * @param requestsPerSecond page requests per second, retries included
+ * @param maxRetries        retries per page before it is counted as failed
+ * @param backoff           first retry delay, doubled on every attempt
+ */
+public record ConnectorSettings(int concurrency, double requestsPerSecond, int maxRetries, Duration backoff) {
+}
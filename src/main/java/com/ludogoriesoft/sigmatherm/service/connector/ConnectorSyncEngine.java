@@ -0,0 +1,307 @@
+package com.ludogoriesoft.sigmatherm.service.connector;
+
+import com.ludogoriesoft.sigmatherm.exception.ApiException;
+import com.ludogoriesoft.sigmatherm.helper.RateLimiter;
+import com.ludogoriesoft.sigmatherm.model.SyncCheckpoint;
+import com.ludogoriesoft.sigmatherm.model.SyncLog;
+import com.ludogoriesoft.sigmatherm.model.Synchronization;
+import com.ludogoriesoft.sigmatherm.model.enums.Platform;
+import com.ludogoriesoft.sigmatherm.model.enums.SyncDirection;
+import com.ludogoriesoft.sigmatherm.service.AppliedOperationService;
+import com.ludogoriesoft.sigmatherm.service.ProductService;
+import com.ludogoriesoft.sigmatherm.service.SyncCheckpointService;
+import com.ludogoriesoft.sigmatherm.service.SyncLogService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Runs a {@link MarketplaceConnector}: fetches page 1, then the remaining pages in parallel
+ * (in order of page number), maps every record to stock deltas, sums them per product and
+ * applies each page with one batched UPDATE. The whole run is recorded as one sync log.
+ * Connectors with a window key are checkpointed per page and resume where they stopped.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ConnectorSyncEngine {
+
+    @Value("${connector.default.concurrency:4}")
+    private int defaultConcurrency;
+
+    @Value("${connector.default.requests-per-second:5}")
+    private double defaultRequestsPerSecond;
+
+    @Value("${connector.default.max-retries:3}")
+    private int defaultMaxRetries;
+
+    @Value("${connector.default.backoff-ms:500}")
+    private long defaultBackoffMs;
+
+    private final SyncLogService syncLogService;
+    private final ProductService productService;
+    private final SyncCheckpointService syncCheckpointService;
+    private final AppliedOperationService appliedOperationService;
+
+    private final Map<String, ConnectorMetrics> metrics = new ConcurrentHashMap<>();
+    private final Map<Platform, RateLimiter> rateLimiters = new ConcurrentHashMap<>();
+
+    public <R> ConnectorRunResult run(MarketplaceConnector<R> connector, Synchronization sync, String batchId) {
+        ConnectorSettings settings = connector.settings() != null ? connector.settings() : getDefaultSettings();
+        ConnectorMetrics connectorMetrics = metricsFor(connector);
+        connectorMetrics.getRuns().increment();
+        long started = System.nanoTime();
+
+        SyncLog syncLog = syncLogService.startSync(
+                connector.platform(),
+                SyncDirection.INBOUND,
+                connector.operation(),
+                sync,
+                batchId
+        );
+
+        RunState state = new RunState();
+        try {
+            if (connector.windowKey() != null) {
+                state.checkpoint = syncCheckpointService.open(connector.platform(), connector.operation(),
+                        connector.windowKey());
+                state.resumedAfter = state.checkpoint.getLastPage();
+            }
+
+            // Page 1 is fetched even when resuming past it, since it carries the page count
+            ConnectorPage<R> firstPage = fetch(connector, 1, settings, connectorMetrics).block();
+            state.totalPages = firstPage != null ? Math.max(1, firstPage.totalPages()) : 1;
+            if (state.resumedAfter < 1) {
+                applyPage(connector, 1, firstPage != null ? firstPage.items() : List.of(), sync, state, connectorMetrics);
+                updateProgress(syncLog, state, 1);
+            }
+
+            int nextPage = Math.max(2, state.resumedAfter + 1);
+            if (nextPage <= state.totalPages) {
+                Flux<PageFetch<R>> remaining = Flux.range(nextPage, state.totalPages - nextPage + 1)
+                        .flatMapSequential(page -> fetch(connector, page, settings, connectorMetrics)
+                                        .map(result -> new PageFetch<>(page, result.items(), null))
+                                        .onErrorResume(e -> Mono.just(new PageFetch<>(page, List.of(), e))),
+                                settings.concurrency());
+
+                // Pages are applied on this thread, one at a time, while later pages are still downloading.
+                // Closing the stream cancels the downloads still in flight when a run stops early.
+                try (Stream<PageFetch<R>> pages = remaining.toStream()) {
+                    Iterator<PageFetch<R>> iterator = pages.iterator();
+                    while (iterator.hasNext()) {
+                        PageFetch<R> fetch = iterator.next();
+                        if (fetch.error() != null) {
+                            state.failedPages++;
+                            connectorMetrics.getPageFailures().increment();
+                            log.error("Giving up on {} {} page {}: {}", connector.platform(), connector.operation(),
+                                    fetch.page(), fetch.error().getMessage());
+                            if (state.checkpoint != null) {
+                                // Later pages must not move the checkpoint past a page that was never applied
+                                throw new IllegalStateException(String.format(
+                                        "Stopped at page %d/%d, the next run resumes from there: %s",
+                                        fetch.page(), state.totalPages, fetch.error().getMessage()));
+                            }
+                        } else {
+                            applyPage(connector, fetch.page(), fetch.items(), sync, state, connectorMetrics);
+                        }
+                        updateProgress(syncLog, state, fetch.page());
+                    }
+                }
+            }
+
+            if (state.checkpoint != null) {
+                syncCheckpointService.complete(state.checkpoint);
+            }
+
+            String details = String.format("Processed %d/%d pages with %d stock movements from %s (%d unknown products)",
+                    state.totalPages - state.failedPages, state.totalPages, state.processed,
+                    connector.platform(), state.unknownProducts);
+            if (state.duplicates > 0) {
+                details += String.format(", skipped %d already applied records", state.duplicates);
+            }
+            if (state.resumedAfter > 0) {
+                details += String.format(", resumed after page %d", state.resumedAfter);
+            }
+            syncLogService.completeSync(syncLog.getId(), state.processed, state.successful,
+                    state.failed + state.failedPages, details);
+
+            log.info("{} {} synchronized: pages {}/{}, movements {}, successful {}, failed {}",
+                    connector.platform(), connector.operation(), state.totalPages - state.failedPages,
+                    state.totalPages, state.processed, state.successful, state.failed);
+
+            return new ConnectorRunResult(state.totalPages, state.failedPages, state.processed,
+                    state.successful, state.failed);
+
+        } catch (RuntimeException e) {
+            connectorMetrics.getFailedRuns().increment();
+            Throwable cause = Exceptions.unwrap(e);
+            syncLogService.failSync(syncLog.getId(), cause.getMessage(), state.processed, state.successful, state.failed);
+            log.error("Failed to synchronize {} {}", connector.platform(), connector.operation(), cause);
+            throw cause instanceof RuntimeException runtime ? runtime : e;
+        } finally {
+            connectorMetrics.getLastRunMillis().set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        }
+    }
+
+    public Map<String, ConnectorMetrics.Snapshot> getMetrics() {
+        Map<String, ConnectorMetrics.Snapshot> snapshots = new TreeMap<>();
+        metrics.forEach((key, value) -> snapshots.put(key, value.snapshot()));
+        return snapshots;
+    }
+
+    public ConnectorSettings getDefaultSettings() {
+        return new ConnectorSettings(defaultConcurrency, defaultRequestsPerSecond, defaultMaxRetries,
+                Duration.ofMillis(defaultBackoffMs));
+    }
+
+    private <R> Mono<ConnectorPage<R>> fetch(MarketplaceConnector<R> connector, int page,
+                                             ConnectorSettings settings, ConnectorMetrics connectorMetrics) {
+        RateLimiter rateLimiter = rateLimiterFor(connector.platform(), settings);
+
+        return Mono.fromCallable(() -> {
+                    rateLimiter.acquire();
+                    long start = System.nanoTime();
+                    try {
+                        return connector.fetchPage(page);
+                    } finally {
+                        connectorMetrics.getFetchMillis().add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .retryWhen(Retry.backoff(settings.maxRetries(), settings.backoff())
+                        // API errors (auth, validation) will not go away on a retry
+                        .filter(e -> !(e instanceof ApiException))
+                        .doBeforeRetry(signal -> {
+                            connectorMetrics.getRetries().increment();
+                            log.warn("Retrying {} {} page {} (attempt {}): {}", connector.platform(),
+                                    connector.operation(), page, signal.totalRetries() + 1,
+                                    signal.failure().getMessage());
+                        })
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .doOnNext(result -> connectorMetrics.getPagesFetched().increment());
+    }
+
+    private <R> void applyPage(MarketplaceConnector<R> connector, int page, List<R> items, Synchronization sync,
+                               RunState state, ConnectorMetrics connectorMetrics) {
+        // Sorted so concurrent runs lock product rows in the same order
+        Map<String, Integer> deltas = new TreeMap<>();
+        Map<Long, List<StockDelta>> keyed = new LinkedHashMap<>();
+        int movements = 0;
+
+        for (R item : items) {
+            Long key = connector.recordKey(item);
+            if (key != null && (keyed.containsKey(key) || appliedOperationService.isApplied(connector.platform(), key))) {
+                state.duplicates++;
+                continue;
+            }
+            List<StockDelta> mapped;
+            try {
+                mapped = connector.map(item);
+            } catch (Exception e) {
+                state.processed++;
+                state.failed++;
+                log.error("Failed to map {} {} record: {}", connector.platform(), connector.operation(), e.getMessage());
+                continue;
+            }
+            List<StockDelta> valid = new ArrayList<>(mapped.size());
+            for (StockDelta delta : mapped) {
+                if (delta.productId() == null) {
+                    state.processed++;
+                    state.failed++;
+                    continue;
+                }
+                valid.add(delta);
+            }
+            if (key != null) {
+                keyed.put(key, valid);
+            } else {
+                valid.forEach(delta -> deltas.merge(delta.productId(), delta.quantity(), Integer::sum));
+            }
+            movements += valid.size();
+        }
+
+        connectorMetrics.getRecords().add(items.size());
+        if (deltas.isEmpty() && keyed.isEmpty() && state.checkpoint == null) {
+            return;
+        }
+
+        Supplier<AppliedOperationService.ApplyResult> work = keyed.isEmpty()
+                ? () -> new AppliedOperationService.ApplyResult(deltas.size(),
+                        productService.applyStockDeltas(deltas, sync), 0, 0)
+                : () -> appliedOperationService.applyOnce(connector.platform(), keyed, deltas, sync);
+
+        long start = System.nanoTime();
+        try {
+            AppliedOperationService.ApplyResult result = state.checkpoint != null
+                    ? syncCheckpointService.commitPage(state.checkpoint, page, null, work)
+                    : work.get();
+            // Records another run applied between the in-memory check and the ledger insert
+            state.duplicates += result.duplicates();
+            state.processed += movements - result.duplicateMovements();
+            state.successful += movements - result.duplicateMovements();
+            state.unknownProducts += result.products() - result.updatedProducts();
+            connectorMetrics.getStockUpdates().add(result.updatedProducts());
+        } catch (Exception e) {
+            state.processed += movements;
+            state.failed += movements;
+            log.error("Failed to apply {} stock changes from {} {}", deltas.size() + keyed.size(), connector.platform(),
+                    connector.operation(), e);
+            if (state.checkpoint != null) {
+                throw new IllegalStateException(String.format(
+                        "Stopped at page %d/%d, the next run resumes from there: %s", page, state.totalPages,
+                        e.getMessage()), e);
+            }
+        } finally {
+            connectorMetrics.getApplyMillis().add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    private void updateProgress(SyncLog syncLog, RunState state, int page) {
+        syncLogService.updateProgress(syncLog.getId(), state.processed, state.successful, state.failed,
+                String.format("Processed page %d/%d (%d stock movements so far)", page, state.totalPages, state.processed));
+    }
+
+    private ConnectorMetrics metricsFor(MarketplaceConnector<?> connector) {
+        return metrics.computeIfAbsent(connector.platform() + ":" + connector.operation(), key -> new ConnectorMetrics());
+    }
+
+    /**
+     * One limiter per platform, shared by every run against it; created with the first run's settings
+     */
+    private RateLimiter rateLimiterFor(Platform platform, ConnectorSettings settings) {
+        return rateLimiters.computeIfAbsent(platform, key -> new RateLimiter(settings.requestsPerSecond()));
+    }
+
+    private record PageFetch<R>(int page, List<R> items, Throwable error) {
+    }
+
+    private static final class RunState {
+        private SyncCheckpoint checkpoint;
+        private int resumedAfter;
+        private int totalPages = 1;
+        private int failedPages;
+        private int processed;
+        private int successful;
+        private int failed;
+        private int unknownProducts;
+        private int duplicates;
+    }
+}
@@ -0,0 +1,56 @@
+package com.ludogoriesoft.sigmatherm.service.connector;
+
+import com.ludogoriesoft.sigmatherm.model.enums.Platform;
+import com.ludogoriesoft.sigmatherm.model.enums.SyncOperation;
+
+import java.util.List;
+
+/**
+ * A platform source of inbound stock movements. Implementations only know how to
+ * fetch one page and how to turn a record into stock deltas; paging, concurrency,
+ * rate limiting, retry, sync logging and the batched stock update are done by
+ * {@link ConnectorSyncEngine}.
+ *
+ * @param <R> the raw record type returned by the platform API
+ */
+public interface MarketplaceConnector<R> {
+
+    Platform platform();
+
+    SyncOperation operation();
+
+    /**
+     * Fetch one page, 1-based. Page 1 is always fetched first and its totalPages
+     * decides how many more pages are requested. May be called from several threads.
+     */
+    ConnectorPage<R> fetchPage(int page) throws Exception;
+
+    /**
+     * Translate a record into stock changes; an empty list skips the record
+     */
+    List<StockDelta> map(R record);
+
+    /**
+     * Id of the record at the source. Records with an id are applied at most once, even when
+     * the same record comes back in a later or overlapping run; null applies the record every time.
+     */
+    default Long recordKey(R record) {
+        return null;
+    }
+
+    /**
+     * Identifies the time window this run covers. When set, every committed page is checkpointed
+     * and an interrupted run of the same window resumes after the last committed page.
+     * Null disables checkpoints (for pushed data or sources without a stable page order).
+     */
+    default String windowKey() {
+        return null;
+    }
+
+    /**
+     * Per-connector overrides; null uses the engine defaults
+     */
+    default ConnectorSettings settings() {
+        return null;
+    }
+}
@@ -0,0 +1,15 @@
+package com.ludogoriesoft.sigmatherm.service.connector;
+
+/**
+ * Signed stock change for one product: negative for sales, positive for returns
+ */
+public record StockDelta(String productId, int quantity) {
+
+    public static StockDelta sale(String productId, int quantity) {
+        return new StockDelta(productId, -Math.abs(quantity));
+    }
+
+    public static StockDelta returned(String productId, int quantity) {
+        return new StockDelta(productId, Math.abs(quantity));
+    }
+}
@@ -0,0 +1,71 @@
+package com.ludogoriesoft.sigmatherm.filter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SkroutzIpFilterTest {
+
+    private static final String SKROUTZ_RANGES = "185.6.76.0/22,2a03:e40::/32";
+
+    private static int statusFor(SkroutzIpFilter filter, String uri, String remoteAddr, String forwardedFor)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+        request.setRemoteAddr(remoteAddr);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response.getStatus();
+    }
+
+    @Test
+    void checksTheConnectingAddressWithoutTrustedProxies() throws Exception {
+        SkroutzIpFilter filter = new SkroutzIpFilter(SKROUTZ_RANGES, "", 100);
+
+        assertThat(statusFor(filter, "/api/skroutz-orders", "185.6.77.1", null)).isEqualTo(200);
+        assertThat(statusFor(filter, "/api/skroutz-orders", "203.0.113.9", null)).isEqualTo(403);
+        // A client cannot pick the address it is checked by
+        assertThat(statusFor(filter, "/api/skroutz-orders", "203.0.113.9", "185.6.77.1")).isEqualTo(403);
+    }
+
+    @Test
+    void readsForwardedForFromTheRightBehindTrustedProxies() throws Exception {
+        SkroutzIpFilter filter = new SkroutzIpFilter(SKROUTZ_RANGES, "172.16.0.0/12,10.0.0.1", 100);
+
+        assertThat(statusFor(filter, "/api/skroutz-orders", "172.18.0.1", "185.6.77.1")).isEqualTo(200);
+        assertThat(statusFor(filter, "/api/skroutz-orders", "172.18.0.1", "185.6.77.1, 10.0.0.1")).isEqualTo(200);
+        // Entries left of the last untrusted hop are whatever the client sent
+        assertThat(statusFor(filter, "/api/skroutz-orders", "172.18.0.1", "185.6.77.1, 203.0.113.9")).isEqualTo(403);
+        assertThat(statusFor(filter, "/api/skroutz-orders", "172.18.0.1", "unknown")).isEqualTo(403);
+        assertThat(statusFor(filter, "/api/skroutz-orders", "172.18.0.1", null)).isEqualTo(403);
+    }
+
+    @Test
+    void leavesOtherPathsAlone() throws Exception {
+        SkroutzIpFilter filter = new SkroutzIpFilter(SKROUTZ_RANGES, "", 100);
+
+        assertThat(statusFor(filter, "/api/skroutz/feed", "203.0.113.9", null)).isEqualTo(200);
+    }
+
+    @Test
+    void decisionsStayCorrectWhenTheCacheIsFull() throws Exception {
+        SkroutzIpFilter filter = new SkroutzIpFilter(SKROUTZ_RANGES, "", 2);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(statusFor(filter, "/api/skroutz-orders", "185.6.76." + i, null)).isEqualTo(200);
+            assertThat(statusFor(filter, "/api/skroutz-orders", "203.0.113." + i, null)).isEqualTo(403);
+        }
+    }
+
+    @Test
+    void blocksEverythingWithoutAllowedRanges() throws Exception {
+        SkroutzIpFilter filter = new SkroutzIpFilter("", "", 100);
+
+        assertThat(statusFor(filter, "/api/skroutz-orders", "185.6.77.1", null)).isEqualTo(403);
+    }
+}
@@ -0,0 +1,112 @@
+package com.ludogoriesoft.sigmatherm.helper;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CidrMatcherTest {
+
+    private final CidrMatcher skroutz = CidrMatcher.parse("185.6.76.0/22, 2a03:e40::/32");
+
+    @Test
+    void matchesIpv4RangeBoundaries() {
+        assertThat(skroutz.matches("185.6.76.0")).isTrue();
+        assertThat(skroutz.matches("185.6.77.12")).isTrue();
+        assertThat(skroutz.matches("185.6.79.255")).isTrue();
+        assertThat(skroutz.matches("185.6.75.255")).isFalse();
+        assertThat(skroutz.matches("185.6.80.0")).isFalse();
+    }
+
+    @Test
+    void matchesIpv6Ranges() {
+        assertThat(skroutz.matches("2a03:e40::1")).isTrue();
+        assertThat(skroutz.matches("2a03:0e40:ffff::")).isTrue();
+        assertThat(skroutz.matches("[2a03:e40:1::5]")).isTrue();
+        assertThat(skroutz.matches("2a03:e41::1")).isFalse();
+        assertThat(skroutz.matches("::1")).isFalse();
+    }
+
+    @Test
+    void ipv4MappedIpv6AddressesMatchIpv4Ranges() {
+        assertThat(skroutz.matches("::ffff:185.6.77.3")).isTrue();
+        assertThat(skroutz.matches("::ffff:185.6.80.3")).isFalse();
+    }
+
+    @Test
+    void familiesDoNotLeakIntoEachOther() {
+        CidrMatcher everyIpv4 = CidrMatcher.parse("0.0.0.0/0");
+
+        assertThat(everyIpv4.matches("8.8.8.8")).isTrue();
+        assertThat(everyIpv4.matches("255.255.255.255")).isTrue();
+        assertThat(everyIpv4.matches("2001:db8::1")).isFalse();
+        assertThat(CidrMatcher.parse("::/0").matches("2001:db8::1")).isTrue();
+        assertThat(CidrMatcher.parse("::/0").matches("8.8.8.8")).isFalse();
+    }
+
+    @Test
+    void plainAddressIsASingleHost() {
+        CidrMatcher matcher = CidrMatcher.parse("10.0.0.5,fd00::7");
+
+        assertThat(matcher.matches("10.0.0.5")).isTrue();
+        assertThat(matcher.matches("10.0.0.4")).isFalse();
+        assertThat(matcher.matches("fd00::7")).isTrue();
+        assertThat(matcher.matches("fd00::8")).isFalse();
+    }
+
+    @Test
+    void rangesCoveredByAWiderRangeChangeNothing() {
+        CidrMatcher narrowFirst = CidrMatcher.parse("10.1.2.0/24,10.0.0.0/8");
+        CidrMatcher wideFirst = CidrMatcher.parse("10.0.0.0/8,10.1.2.0/24");
+
+        for (CidrMatcher matcher : new CidrMatcher[]{narrowFirst, wideFirst}) {
+            assertThat(matcher.matches("10.1.2.3")).isTrue();
+            assertThat(matcher.matches("10.200.0.1")).isTrue();
+            assertThat(matcher.matches("11.0.0.1")).isFalse();
+        }
+        assertThat(narrowFirst.size()).isEqualTo(2);
+    }
+
+    @Test
+    void manyRangesGrowTheTrie() {
+        StringBuilder cidrs = new StringBuilder();
+        for (int i = 0; i < 256; i++) {
+            cidrs.append("10.").append(i).append(".0.0/16,");
+        }
+        CidrMatcher matcher = CidrMatcher.parse(cidrs.toString());
+
+        assertThat(matcher.size()).isEqualTo(256);
+        for (int i = 0; i < 256; i++) {
+            assertThat(matcher.matches("10." + i + ".1.1")).isTrue();
+        }
+        assertThat(matcher.matches("11.0.1.1")).isFalse();
+    }
+
+    @Test
+    void emptyConfigurationMatchesNothing() {
+        assertThat(CidrMatcher.parse("").isEmpty()).isTrue();
+        assertThat(CidrMatcher.parse(" , ").isEmpty()).isTrue();
+        assertThat(CidrMatcher.parse(null).matches("185.6.76.1")).isFalse();
+    }
+
+    @Test
+    void rejectsInvalidRanges() {
+        assertThatThrownBy(() -> CidrMatcher.parse("185.6.76.0/33")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CidrMatcher.parse("2a03:e40::/129")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CidrMatcher.parse("10.0.0.0/-1")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CidrMatcher.parse("10.0.0.0/abc")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CidrMatcher.parse("skroutz.gr")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CidrMatcher.parse("300.1.1.1")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void invalidAddressesNeverMatch() {
+        CidrMatcher everything = CidrMatcher.parse("0.0.0.0/0,::/0");
+
+        assertThat(everything.matches((String) null)).isFalse();
+        assertThat(everything.matches("unknown")).isFalse();
+        assertThat(everything.matches("cafe")).isFalse();
+        assertThat(everything.matches("1.2.3")).isFalse();
+        assertThat(everything.matches("1.2.3.4.5")).isFalse();
+    }
+}
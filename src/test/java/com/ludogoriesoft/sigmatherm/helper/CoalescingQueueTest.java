@@ -0,0 +1,72 @@
+package com.ludogoriesoft.sigmatherm.helper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoalescingQueueTest {
+
+    @Test
+    void keepsOnlyTheLatestValuePerKey() {
+        CoalescingQueue<String, Integer> queue = new CoalescingQueue<>();
+
+        assertThat(queue.offer("a", 1)).isFalse();
+        assertThat(queue.offer("a", 2)).isTrue();
+        queue.offer("b", 5);
+
+        assertThat(queue.size()).isEqualTo(2);
+        assertThat(queue.drain()).containsExactlyInAnyOrderEntriesOf(Map.of("a", 2, "b", 5));
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void offerIfAbsentDoesNotReplaceANewerValue() {
+        CoalescingQueue<String, Integer> queue = new CoalescingQueue<>();
+        queue.offer("a", 7);
+
+        queue.offerIfAbsent("a", 3);
+        queue.offerIfAbsent("b", 4);
+
+        assertThat(queue.drain()).containsExactlyInAnyOrderEntriesOf(Map.of("a", 7, "b", 4));
+    }
+
+    @Test
+    void drainOfAnEmptyQueueIsEmpty() {
+        assertThat(new CoalescingQueue<String, Integer>().drain()).isEmpty();
+    }
+
+    @Test
+    void valuesOfferedDuringDrainsAreNeverLost() throws InterruptedException {
+        CoalescingQueue<Integer, Integer> queue = new CoalescingQueue<>();
+        int keys = 100;
+        int rounds = 2000;
+        ExecutorService producer = Executors.newSingleThreadExecutor();
+        CountDownLatch done = new CountDownLatch(1);
+        producer.submit(() -> {
+            for (int round = 1; round <= rounds; round++) {
+                for (int key = 0; key < keys; key++) {
+                    queue.offer(key, round);
+                }
+            }
+            done.countDown();
+        });
+
+        Map<Integer, Integer> lastSeen = new HashMap<>();
+        while (done.getCount() > 0) {
+            lastSeen.putAll(queue.drain());
+        }
+        lastSeen.putAll(queue.drain());
+        producer.shutdown();
+        assertThat(producer.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        // Every key ends with the final value, whichever drain picked it up
+        assertThat(lastSeen).hasSize(keys).allSatisfy((key, value) -> assertThat(value).isEqualTo(rounds));
+    }
+}
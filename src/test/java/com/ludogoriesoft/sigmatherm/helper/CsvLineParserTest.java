@@ -0,0 +1,40 @@
+package com.ludogoriesoft.sigmatherm.helper;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvLineParserTest {
+
+    @Test
+    void splitsPlainFields() {
+        assertThat(CsvLineParser.split("offerId,ean,stockAmount")).containsExactly("offerId", "ean", "stockAmount");
+    }
+
+    @Test
+    void keepsEmptyFields() {
+        assertThat(CsvLineParser.split(",a,,")).containsExactly("", "a", "", "");
+        assertThat(CsvLineParser.split("")).containsExactly("");
+    }
+
+    @Test
+    void quotedFieldsMayContainCommas() {
+        assertThat(CsvLineParser.split("1,\"Radiator, 600 x 1000\",5")).containsExactly("1", "Radiator, 600 x 1000", "5");
+    }
+
+    @Test
+    void doubledQuotesAreEscapes() {
+        assertThat(CsvLineParser.split("\"say \"\"hi\"\"\",x")).containsExactly("say \"hi\"", "x");
+        assertThat(CsvLineParser.split("\"\"\"\"")).containsExactly("\"");
+    }
+
+    @Test
+    void emptyQuotedFieldIsEmpty() {
+        assertThat(CsvLineParser.split("\"\",b")).containsExactly("", "b");
+    }
+
+    @Test
+    void unterminatedQuoteRunsToTheEndOfTheLine() {
+        assertThat(CsvLineParser.split("a,\"b,c")).containsExactly("a", "b,c");
+    }
+}
@@ -0,0 +1,127 @@
+package com.ludogoriesoft.sigmatherm.helper;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeyedExecutorTest {
+
+    private final KeyedExecutor executor = new KeyedExecutor("test", 4, Thread.ofVirtual().factory());
+
+    @AfterEach
+    void close() {
+        executor.close();
+    }
+
+    @Test
+    void runsTasksOfOneKeyInSubmissionOrder() {
+        List<Integer> seen = new CopyOnWriteArrayList<>();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int value = i;
+            results.add(executor.submit("order-1", () -> {
+                if (running.incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+                seen.add(value);
+                running.decrementAndGet();
+                return null;
+            }));
+        }
+
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).join();
+
+        assertThat(overlaps).hasValue(0);
+        assertThat(seen).hasSize(200).isSorted();
+    }
+
+    @Test
+    void runsDifferentLanesInParallel() throws Exception {
+        KeyedExecutor twoLanes = new KeyedExecutor("parallel", 2, Thread.ofVirtual().factory());
+        // Keys 0 and 1 hash to different lanes of two
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        try {
+            CompletableFuture<Boolean> first = twoLanes.submit(0, () -> {
+                bothStarted.countDown();
+                return bothStarted.await(5, TimeUnit.SECONDS);
+            });
+            CompletableFuture<Boolean> second = twoLanes.submit(1, () -> {
+                bothStarted.countDown();
+                return bothStarted.await(5, TimeUnit.SECONDS);
+            });
+
+            assertThat(first.get(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(second.get(10, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            twoLanes.close();
+        }
+    }
+
+    @Test
+    void nestedCallsFromALaneRunInline() {
+        String result = executor.call("outer", () -> executor.call("outer", () -> "inner")
+                + executor.call("other", () -> "-other"));
+
+        assertThat(result).isEqualTo("inner-other");
+    }
+
+    @Test
+    void callRethrowsTheTasksRuntimeException() {
+        IllegalStateException failure = new IllegalStateException("boom");
+
+        assertThatThrownBy(() -> executor.run("key", () -> {
+            throw failure;
+        })).isSameAs(failure);
+        // The lane keeps working after a failed task
+        assertThat(executor.call("key", () -> 1)).isEqualTo(1);
+    }
+
+    @Test
+    void closeFinishesQueuedTasksAndRejectsNewOnes() {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Object> blocker = executor.submit("key", () -> release.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = executor.submit("key", () -> "done");
+
+        Thread.ofVirtual().start(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            release.countDown();
+        });
+        executor.close();
+
+        assertThat(blocker).isCompletedWithValue(true);
+        assertThat(queued).isCompletedWithValue("done");
+        assertThatThrownBy(() -> executor.submit("key", () -> 1).join())
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void statsCountSubmittedAndCompletedTasks() {
+        for (int i = 0; i < 10; i++) {
+            executor.call(i, () -> null);
+        }
+
+        KeyedExecutor.Stats stats = executor.stats();
+
+        assertThat(stats.name()).isEqualTo("test");
+        assertThat(stats.lanes()).isEqualTo(4);
+        assertThat(stats.submitted()).isEqualTo(10);
+        assertThat(stats.completed()).isEqualTo(10);
+        assertThat(stats.queued()).isZero();
+    }
+}
@@ -0,0 +1,50 @@
+package com.ludogoriesoft.sigmatherm.helper;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongHashSetTest {
+
+    @Test
+    void addReportsWhetherTheKeyWasNew() {
+        LongHashSet set = new LongHashSet(4);
+
+        assertThat(set.add(42)).isTrue();
+        assertThat(set.add(42)).isFalse();
+        assertThat(set.contains(42)).isTrue();
+        assertThat(set.contains(43)).isFalse();
+        assertThat(set.size()).isEqualTo(1);
+    }
+
+    @Test
+    void keyZeroIsAnOrdinaryKey() {
+        LongHashSet set = new LongHashSet(4);
+        assertThat(set.contains(0)).isFalse();
+
+        assertThat(set.add(0)).isTrue();
+        assertThat(set.add(0)).isFalse();
+
+        assertThat(set.contains(0)).isTrue();
+        assertThat(set.size()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsEveryKeyAcrossRehashes() {
+        LongHashSet set = new LongHashSet(1);
+        int count = 100_000;
+        for (long id = 0; id < count; id++) {
+            set.add(id);
+        }
+        set.add(-1);
+        set.add(Long.MIN_VALUE);
+
+        assertThat(set.size()).isEqualTo(count + 2);
+        for (long id = 0; id < count; id++) {
+            assertThat(set.contains(id)).isTrue();
+        }
+        assertThat(set.contains(-1)).isTrue();
+        assertThat(set.contains(Long.MIN_VALUE)).isTrue();
+        assertThat(set.contains(count)).isFalse();
+    }
+}
@@ -0,0 +1,62 @@
+package com.ludogoriesoft.sigmatherm.helper;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongIntHashMapTest {
+
+    @Test
+    void addToStartsFromZeroAndAccumulates() {
+        LongIntHashMap map = new LongIntHashMap(4);
+
+        map.addTo(7, 5);
+        map.addTo(7, -2);
+        map.addTo(9, 1);
+
+        assertThat(map.get(7, -1)).isEqualTo(3);
+        assertThat(map.get(9, -1)).isEqualTo(1);
+        assertThat(map.size()).isEqualTo(2);
+    }
+
+    @Test
+    void missingKeysUseTheMissingValue() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        map.addTo(1, 1);
+
+        assertThat(map.get(2, -1)).isEqualTo(-1);
+        assertThat(map.containsKey(2)).isFalse();
+    }
+
+    @Test
+    void keyZeroIsAnOrdinaryKey() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        assertThat(map.containsKey(0)).isFalse();
+        assertThat(map.get(0, -1)).isEqualTo(-1);
+
+        map.addTo(0, 4);
+        map.addTo(0, 6);
+
+        assertThat(map.containsKey(0)).isTrue();
+        assertThat(map.get(0, -1)).isEqualTo(10);
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsEveryEntryAcrossRehashes() {
+        LongIntHashMap map = new LongIntHashMap(1);
+        int count = 100_000;
+        for (int i = 0; i < count; i++) {
+            map.addTo(i * 31L - 50_000, i);
+        }
+        map.addTo(Long.MIN_VALUE, 1);
+        map.addTo(Long.MAX_VALUE, 2);
+
+        assertThat(map.size()).isEqualTo(count + 2);
+        for (int i = 0; i < count; i++) {
+            assertThat(map.get(i * 31L - 50_000, -1)).isEqualTo(i);
+        }
+        assertThat(map.get(Long.MIN_VALUE, -1)).isEqualTo(1);
+        assertThat(map.get(Long.MAX_VALUE, -1)).isEqualTo(2);
+    }
+}
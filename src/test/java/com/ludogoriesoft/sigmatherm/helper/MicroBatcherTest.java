@@ -0,0 +1,99 @@
+package com.ludogoriesoft.sigmatherm.helper;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MicroBatcherTest {
+
+    private final List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+
+    private void doubleEach(List<MicroBatcher.Request<Integer, Integer>> batch) {
+        batches.add(batch.stream().map(MicroBatcher.Request::item).toList());
+        batch.forEach(request -> request.result().complete(request.item() * 2));
+    }
+
+    @Test
+    void closesABatchOnceItIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (MicroBatcher<Integer, Integer> batcher = new MicroBatcher<>("full", 3, Duration.ofSeconds(10), batch -> {
+            release.await();
+            doubleEach(batch);
+        })) {
+            List<CompletableFuture<Integer>> results = new ArrayList<>();
+            for (int i = 1; i <= 6; i++) {
+                results.add(batcher.submit(i));
+            }
+            release.countDown();
+
+            for (int i = 0; i < results.size(); i++) {
+                assertThat(results.get(i).get(5, TimeUnit.SECONDS)).isEqualTo((i + 1) * 2);
+            }
+        }
+        // The window is ten seconds, so only the size limit can have cut these
+        assertThat(batches).containsExactly(List.of(1, 2, 3), List.of(4, 5, 6));
+    }
+
+    @Test
+    void closesABatchWhenItsWindowEnds() throws Exception {
+        try (MicroBatcher<Integer, Integer> batcher = new MicroBatcher<>("window", 100, Duration.ofMillis(50),
+                this::doubleEach)) {
+            long start = System.nanoTime();
+            CompletableFuture<Integer> result = batcher.submit(21);
+
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(42);
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2000);
+        }
+        assertThat(batches).containsExactly(List.of(21));
+    }
+
+    @Test
+    void failsRequestsTheHandlerLeavesOpen() {
+        try (MicroBatcher<Integer, Integer> batcher = new MicroBatcher<>("partial", 2, Duration.ofMillis(20),
+                batch -> batch.get(0).result().complete(0))) {
+            CompletableFuture<Integer> first = batcher.submit(1);
+            CompletableFuture<Integer> second = batcher.submit(2);
+
+            assertThat(first.join()).isZero();
+            assertThatThrownBy(second::join).hasCauseInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    void failsTheWholeBatchWhenTheHandlerThrows() {
+        IllegalArgumentException failure = new IllegalArgumentException("rejected");
+        try (MicroBatcher<Integer, Integer> batcher = new MicroBatcher<>("failing", 2, Duration.ofMillis(20), batch -> {
+            throw failure;
+        })) {
+            CompletableFuture<Integer> first = batcher.submit(1);
+            CompletableFuture<Integer> second = batcher.submit(2);
+
+            assertThatThrownBy(first::get).isInstanceOf(ExecutionException.class).hasCause(failure);
+            assertThatThrownBy(second::get).isInstanceOf(ExecutionException.class).hasCause(failure);
+        }
+    }
+
+    @Test
+    void closeDispatchesQueuedItemsAndRejectsNewOnes() throws Exception {
+        MicroBatcher<Integer, Integer> batcher = new MicroBatcher<>("closing", 100, Duration.ofSeconds(10),
+                this::doubleEach);
+        CompletableFuture<Integer> queued = batcher.submit(5);
+
+        batcher.close();
+
+        assertThat(queued.get(1, TimeUnit.SECONDS)).isEqualTo(10);
+        assertThat(batcher.pending()).isZero();
+        assertThatThrownBy(() -> batcher.submit(6).join()).hasCauseInstanceOf(RejectedExecutionException.class);
+    }
+}
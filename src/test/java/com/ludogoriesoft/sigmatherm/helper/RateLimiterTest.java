@@ -0,0 +1,59 @@
+package com.ludogoriesoft.sigmatherm.helper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RateLimiterTest {
+
+    @Test
+    void rejectsANonPositiveRate() {
+        assertThatThrownBy(() -> new RateLimiter(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new RateLimiter(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void firstPermitIsImmediate() {
+        RateLimiter limiter = new RateLimiter(1);
+
+        long start = System.nanoTime();
+        limiter.acquire();
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(500);
+    }
+
+    @Test
+    void spacesPermitsByTheInterval() {
+        RateLimiter limiter = new RateLimiter(20);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 6; i++) {
+            limiter.acquire();
+        }
+
+        // Five intervals of 50 ms follow the immediate first permit
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(240);
+    }
+
+    @Test
+    void concurrentCallersShareTheRate() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(20);
+        Thread[] threads = new Thread[3];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = Thread.ofPlatform().start(() -> {
+                limiter.acquire();
+                limiter.acquire();
+            });
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(240);
+    }
+}
@@ -0,0 +1,82 @@
+package com.ludogoriesoft.sigmatherm.helper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StockSnapshotTest {
+
+    @Test
+    void looksUpStocksById() {
+        StockSnapshot snapshot = StockSnapshot.builder(4)
+                .add("P-3", 30)
+                .add("P-1", 10)
+                .add("P-2", 20)
+                .build();
+
+        assertThat(snapshot.size()).isEqualTo(3);
+        assertThat(snapshot.stockOf("P-1", -1)).isEqualTo(10);
+        assertThat(snapshot.stockOf("P-2", -1)).isEqualTo(20);
+        assertThat(snapshot.stockOf("P-3", -1)).isEqualTo(30);
+        assertThat(snapshot.contains("P-2")).isTrue();
+    }
+
+    @Test
+    void missingIdsUseTheMissingValue() {
+        StockSnapshot snapshot = StockSnapshot.builder(1).add("A", 1).build();
+
+        assertThat(snapshot.stockOf("B", -1)).isEqualTo(-1);
+        assertThat(snapshot.contains("B")).isFalse();
+        assertThat(snapshot.indexOf(null)).isNegative();
+        assertThat(snapshot.stockOf(null, 0)).isZero();
+    }
+
+    @Test
+    void entriesAreSortedById() {
+        StockSnapshot snapshot = StockSnapshot.builder(0)
+                .add("c", 3)
+                .add("a", 1)
+                .add("b", 2)
+                .build();
+
+        assertThat(snapshot.idAt(0)).isEqualTo("a");
+        assertThat(snapshot.idAt(1)).isEqualTo("b");
+        assertThat(snapshot.idAt(2)).isEqualTo("c");
+        assertThat(snapshot.stockAt(0)).isEqualTo(1);
+        assertThat(snapshot.stockAt(2)).isEqualTo(3);
+    }
+
+    @Test
+    void emptySnapshot() {
+        StockSnapshot snapshot = StockSnapshot.builder(0).build();
+
+        assertThat(snapshot.size()).isZero();
+        assertThat(snapshot.contains("a")).isFalse();
+    }
+
+    @Test
+    void growsPastTheExpectedSizeAndKeepsStocksWithTheirIds() {
+        Random random = new Random(42);
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        StockSnapshot.Builder builder = StockSnapshot.builder(1);
+        for (int i = 0; i < 5000; i++) {
+            String id = "P-" + random.nextInt(1_000_000);
+            if (expected.putIfAbsent(id, i) == null) {
+                builder.add(id, i);
+            }
+        }
+
+        StockSnapshot snapshot = builder.build();
+
+        assertThat(snapshot.size()).isEqualTo(expected.size());
+        int index = 0;
+        for (var entry : expected.entrySet()) {
+            assertThat(snapshot.idAt(index)).isEqualTo(entry.getKey());
+            assertThat(snapshot.stockAt(index)).isEqualTo(entry.getValue());
+            index++;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.ludogoriesoft.sigmatherm.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SkroutzFeedServiceTest {
+
+    private static final String FEED = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <mywebstore>
+                <created_at>2020-01-01 10:00</created_at>
+                <products>
+                    <product>
+                        <quantity>1</quantity>
+                        <mpn>QUANTITY-FIRST</mpn>
+                    </product>
+                    <product>
+                        <mpn>NO-QUANTITY</mpn>
+                        <name>Radiator</name>
+                    </product>
+                    <product>
+                        <mpn>UNTOUCHED</mpn>
+                        <name>Pump &amp; valve</name>
+                        <quantity>7</quantity>
+                    </product>
+                    <product>
+                        <mpn>SAME-STOCK</mpn>
+                        <quantity>5</quantity>
+                    </product>
+                </products>
+            </mywebstore>
+            """;
+
+    private final SkroutzFeedService service = new SkroutzFeedService(null, null, null);
+
+    @TempDir
+    private Path dir;
+
+    private Path write(String name, String content) throws Exception {
+        return Files.writeString(dir.resolve(name), content);
+    }
+
+    /**
+     * Quantity text per mpn, with null for a product without one
+     */
+    private static Map<String, String> quantities(Path feed) throws Exception {
+        Map<String, String> quantities = new HashMap<>();
+        try (InputStream in = Files.newInputStream(feed)) {
+            XMLStreamReader reader = SkroutzFeedService.newInputFactory().createXMLStreamReader(in);
+            String mpn = null;
+            String quantity = null;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (reader.getLocalName()) {
+                        case "product" -> {
+                            mpn = null;
+                            quantity = null;
+                        }
+                        case "mpn" -> mpn = reader.getElementText();
+                        case "quantity" -> quantity = reader.getElementText();
+                        default -> {
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && "product".equals(reader.getLocalName())) {
+                    quantities.put(mpn, quantity);
+                }
+            }
+            reader.close();
+        }
+        return quantities;
+    }
+
+    @Test
+    void rewritesTheQuantityOfMatchedProductsOnly() throws Exception {
+        Path source = write("source.xml", FEED);
+        Path target = dir.resolve("feed.xml");
+
+        SkroutzFeedService.FeedRewrite rewrite = service.rewriteFeed(source, target, Map.of(
+                "QUANTITY-FIRST", 4, "NO-QUANTITY", 9, "SAME-STOCK", 5, "NOT-IN-FEED", 3));
+
+        assertThat(rewrite.feedProducts()).isEqualTo(4);
+        assertThat(rewrite.matched()).containsExactlyInAnyOrder("QUANTITY-FIRST", "NO-QUANTITY", "SAME-STOCK");
+        assertThat(rewrite.changed()).isEqualTo(2);
+        assertThat(quantities(target)).containsOnly(
+                Map.entry("QUANTITY-FIRST", "4"),
+                Map.entry("NO-QUANTITY", "9"),
+                Map.entry("UNTOUCHED", "7"),
+                Map.entry("SAME-STOCK", "5"));
+
+        String written = Files.readString(target);
+        assertThat(written).contains("<name>Pump &amp; valve</name>", "<name>Radiator</name>");
+        assertThat(service.validateFeed(target).valid()).isTrue();
+    }
+
+    @Test
+    void replacesCreatedAt() throws Exception {
+        Path target = dir.resolve("feed.xml");
+
+        service.rewriteFeed(write("source.xml", FEED), target, Map.of());
+
+        String written = Files.readString(target);
+        assertThat(written).doesNotContain("2020-01-01 10:00");
+        assertThat(written).containsOnlyOnce("<created_at>");
+        assertThat(written).containsPattern("<created_at>\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}</created_at>");
+    }
+
+    @Test
+    void insertsAMissingCreatedAtBeforeTheProducts() throws Exception {
+        Path target = dir.resolve("feed.xml");
+
+        service.rewriteFeed(write("source.xml", FEED.replace("<created_at>2020-01-01 10:00</created_at>", "")),
+                target, Map.of("UNTOUCHED", 2));
+
+        String written = Files.readString(target);
+        assertThat(written).containsOnlyOnce("<created_at>");
+        assertThat(written.indexOf("<created_at>")).isLessThan(written.indexOf("<products>"));
+        assertThat(quantities(target)).containsEntry("UNTOUCHED", "2");
+    }
+
+    @Test
+    void validationAcceptsAWellFormedFeed() throws Exception {
+        SkroutzFeedService.FeedValidation validation = service.validateFeed(write("feed.xml", FEED));
+
+        assertThat(validation.valid()).isTrue();
+        assertThat(validation.products()).isEqualTo(4);
+        assertThat(validation.errors()).isEmpty();
+    }
+
+    @Test
+    void validationRejectsBrokenFeeds() throws Exception {
+        assertThat(service.validateFeed(write("root.xml", "<store><products/></store>")).errors())
+                .containsExactly("Root element is <store>, expected <mywebstore>");
+        assertThat(service.validateFeed(write("empty.xml", "<mywebstore><products/></mywebstore>")).errors())
+                .containsExactly("No products found under <products>");
+        assertThat(service.validateFeed(write("malformed.xml", "<mywebstore><products><product>")).errors())
+                .singleElement().asString().startsWith("Malformed XML");
+
+        SkroutzFeedService.FeedValidation products = service.validateFeed(write("products.xml", """
+                <mywebstore><products>
+                    <product><mpn>A</mpn><quantity>1</quantity></product>
+                    <product><mpn>A</mpn><quantity>2</quantity></product>
+                    <product><quantity>3</quantity></product>
+                    <product><mpn>B</mpn><quantity>many</quantity></product>
+                </products></mywebstore>
+                """));
+        assertThat(products.valid()).isFalse();
+        assertThat(products.products()).isEqualTo(4);
+        assertThat(products.errors()).containsExactly(
+                "Duplicate mpn A",
+                "Product #3 has no mpn",
+                "Product #4 has a non-numeric quantity 'many'");
+    }
+}